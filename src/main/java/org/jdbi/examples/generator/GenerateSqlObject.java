@@ -0,0 +1,16 @@
+package org.jdbi.examples.generator;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a SqlObject interface for {@link SqlObjectProcessor}, which generates a concrete implementation of it at
+ * compile time. Install {@link GeneratedSqlObjectPlugin} to have Jdbi attach the generated class instead of a
+ * dynamic proxy.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface GenerateSqlObject {
+}
@@ -0,0 +1,185 @@
+package org.jdbi.examples.generator;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jdbi.v3.core.extension.ExtensionFactory;
+import org.jdbi.v3.core.extension.HandleSupplier;
+import org.jdbi.v3.sqlobject.Handler;
+import org.jdbi.v3.sqlobject.HandlerDecorator;
+import org.jdbi.v3.sqlobject.HandlerDecorators;
+import org.jdbi.v3.sqlobject.UnableToCreateSqlObjectException;
+
+/**
+ * Attaches interfaces marked with {@link GenerateSqlObject} by instantiating the implementation that
+ * {@link SqlObjectProcessor} generated for them. The generated constructor is looked up once per interface.
+ *
+ * <p>Handler decorators registered in {@link HandlerDecorators} (for example by a plugin) still apply: if any of them
+ * decorates a method of the interface, the generated instance is wrapped in a proxy which routes the decorated
+ * methods through their decorator chain and calls every other method straight through. Only when no decorator
+ * applies is the generated instance returned as it is.
+ *
+ * <p>Every handle holds its own copy of {@link HandlerDecorators}, so the decorated handlers are cached per interface
+ * and per list of registered decorators, which the copies share unless a handle registers more. If that list cannot be
+ * read, as may happen with another version of jdbi, the handlers are worked out again on every attach.
+ */
+public class GeneratedSqlObjectFactory implements ExtensionFactory {
+  private static final ClassValue<Constructor<?>> CONSTRUCTORS = new ClassValue<Constructor<?>>() {
+    @Override
+    protected Constructor<?> computeValue(Class<?> sqlObjectType) {
+      String name = implementationName(sqlObjectType.getName());
+      try {
+        Class<?> implementation = Class.forName(name, true, sqlObjectType.getClassLoader());
+        return implementation.getConstructor(HandleSupplier.class);
+      }
+      catch (ClassNotFoundException | NoSuchMethodException e) {
+        throw failure("No generated implementation " + name + " for " + sqlObjectType
+                          + "; was the annotation processor run?", e);
+      }
+    }
+  };
+
+  // Different decorator lists per interface remembered before handlers are no longer cached for it.
+  private static final int MAX_DECORATOR_LISTS = 16;
+  private static final Field DECORATORS = decoratorsField();
+
+  private static final ClassValue<ConcurrentMap<List<HandlerDecorator>, Map<Method, Handler>>> HANDLERS =
+      new ClassValue<ConcurrentMap<List<HandlerDecorator>, Map<Method, Handler>>>() {
+        @Override
+        protected ConcurrentMap<List<HandlerDecorator>, Map<Method, Handler>> computeValue(Class<?> sqlObjectType) {
+          return new ConcurrentHashMap<>();
+        }
+      };
+
+  @Override
+  public boolean accepts(Class<?> extensionType) {
+    return extensionType.isInterface() && extensionType.isAnnotationPresent(GenerateSqlObject.class);
+  }
+
+  @Override
+  public <E> E attach(Class<E> extensionType, HandleSupplier handle) {
+    Object generated;
+    try {
+      generated = CONSTRUCTORS.get(extensionType).newInstance(handle);
+    }
+    catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+      throw failure("Unable to attach " + extensionType, e);
+    }
+
+    Map<Method, Handler> decorated = cachedHandlers(extensionType, handle.getConfig(HandlerDecorators.class));
+    if (decorated.isEmpty()) {
+      return extensionType.cast(generated);
+    }
+    return extensionType.cast(Proxy.newProxyInstance(
+        extensionType.getClassLoader(),
+        new Class<?>[] {extensionType},
+        (proxy, method, args) -> {
+          Handler handler = decorated.get(method);
+          return handler == null ? invoke(generated, method, args) : handler.invoke(generated, args, handle);
+        }));
+  }
+
+  private static Map<Method, Handler> cachedHandlers(Class<?> extensionType, HandlerDecorators decorators) {
+    List<HandlerDecorator> key = registeredDecorators(decorators);
+    if (key == null) {
+      return decoratedHandlers(extensionType, decorators);
+    }
+    ConcurrentMap<List<HandlerDecorator>, Map<Method, Handler>> byDecorators = HANDLERS.get(extensionType);
+    Map<Method, Handler> decorated = byDecorators.get(key);
+    if (decorated == null) {
+      decorated = decoratedHandlers(extensionType, decorators);
+      if (byDecorators.size() < MAX_DECORATOR_LISTS) {
+        // Key by a snapshot: the handle's own list changes if decorators are registered on it later.
+        byDecorators.putIfAbsent(new ArrayList<>(key), decorated);
+      }
+    }
+    return decorated;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<HandlerDecorator> registeredDecorators(HandlerDecorators decorators) {
+    if (DECORATORS == null) {
+      return null;
+    }
+    try {
+      return (List<HandlerDecorator>) DECORATORS.get(decorators);
+    }
+    catch (IllegalAccessException | ClassCastException e) {
+      return null;
+    }
+  }
+
+  /**
+   * The list of decorators inside {@link HandlerDecorators}, which has no public accessor for it.
+   */
+  private static Field decoratorsField() {
+    try {
+      Field field = HandlerDecorators.class.getDeclaredField("decorators");
+      field.setAccessible(true);
+      return List.class.isAssignableFrom(field.getType()) ? field : null;
+    }
+    catch (NoSuchFieldException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the decorated handler of every interface method that at least one registered decorator wraps. The base
+   * handler of each method calls the generated implementation, so a decorator that leaves a method alone returns it
+   * unchanged and the method is left out.
+   */
+  private static Map<Method, Handler> decoratedHandlers(Class<?> extensionType, HandlerDecorators decorators) {
+    Map<Method, Handler> decorated = new HashMap<>();
+    for (Method method : extensionType.getMethods()) {
+      if (Modifier.isStatic(method.getModifiers())) {
+        continue;
+      }
+      Handler base = (target, args, handle) -> invoke(target, method, args);
+      Handler handler = decorators.applyDecorators(base, extensionType, method);
+      if (handler != base) {
+        decorated.put(method, handler);
+      }
+    }
+    return Collections.unmodifiableMap(decorated);
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Exception {
+    try {
+      return method.invoke(target, args);
+    }
+    catch (InvocationTargetException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      throw (Error) cause;
+    }
+  }
+
+  private static UnableToCreateSqlObjectException failure(String message, Throwable cause) {
+    UnableToCreateSqlObjectException failure = new UnableToCreateSqlObjectException(message);
+    failure.initCause(cause);
+    return failure;
+  }
+
+  /**
+   * Returns the binary name of the class generated for the given SqlObject interface: a top level class in the same
+   * package, named after the interface and its enclosing classes joined with underscores, plus {@code Impl}. For
+   * example, {@code Example05SqlObjectApi.AccountDao} is implemented by {@code Example05SqlObjectApi_AccountDaoImpl}.
+   */
+  static String implementationName(String binaryName) {
+    int packageEnd = binaryName.lastIndexOf('.');
+    return binaryName.substring(0, packageEnd + 1) + binaryName.substring(packageEnd + 1).replace('$', '_') + "Impl";
+  }
+}
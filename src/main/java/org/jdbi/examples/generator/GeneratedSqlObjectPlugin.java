@@ -0,0 +1,18 @@
+package org.jdbi.examples.generator;
+
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+
+/**
+ * Installs the regular {@link SqlObjectPlugin}, then puts {@link GeneratedSqlObjectFactory} in front of it. Interfaces
+ * marked with {@link GenerateSqlObject} are attached through their generated implementations; every other SqlObject
+ * still gets a proxy.
+ */
+public class GeneratedSqlObjectPlugin extends SqlObjectPlugin {
+  @Override
+  public void customizeJdbi(Jdbi jdbi) {
+    super.customizeJdbi(jdbi);
+    // Extension factories registered later are consulted first.
+    jdbi.registerExtension(new GeneratedSqlObjectFactory());
+  }
+}
@@ -0,0 +1,584 @@
+package org.jdbi.examples.generator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+import org.jdbi.v3.core.mapper.reflect.BeanMapper;
+import org.jdbi.v3.core.mapper.reflect.ConstructorMapper;
+import org.jdbi.v3.sqlobject.SqlMethodDecoratingAnnotation;
+import org.jdbi.v3.sqlobject.SqlObject;
+import org.jdbi.v3.sqlobject.config.ConfiguringAnnotation;
+import org.jdbi.v3.sqlobject.config.RegisterArgumentFactory;
+import org.jdbi.v3.sqlobject.config.RegisterBeanMapper;
+import org.jdbi.v3.sqlobject.config.RegisterColumnMapper;
+import org.jdbi.v3.sqlobject.config.RegisterConstructorMapper;
+import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.customizer.BindBean;
+import org.jdbi.v3.sqlobject.customizer.SqlStatementCustomizingAnnotation;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+
+/**
+ * Generates a concrete implementation for each interface marked with {@link GenerateSqlObject}. Every statement
+ * method becomes plain Handle API calls, so a call on the attached object is an ordinary (inlinable) virtual call
+ * instead of a trip through {@code java.lang.reflect.Proxy} and the SqlObject handler chain. Default methods are
+ * inherited from the interface as they are, and call the generated statement methods directly.
+ *
+ * <p>The processor supports a deliberately small subset of the SqlObject API:
+ * <ul>
+ * <li>{@link SqlQuery} methods returning a {@link List}, an {@link java.util.Optional}, a primitive (exactly one row),
+ * or any other type (first row, or {@code null});</li>
+ * <li>{@link SqlUpdate} methods returning {@code void} or {@code int};</li>
+ * <li>{@link SqlBatch} methods returning {@code void} or {@code int[]}, iterating over every {@link Iterable}
+ * parameter in lock step;</li>
+ * <li>parameters bound by name, with {@link Bind}, or with {@link BindBean};</li>
+ * <li>{@link RegisterBeanMapper}, {@link RegisterConstructorMapper}, {@link RegisterRowMapper},
+ * {@link RegisterColumnMapper} and {@link RegisterArgumentFactory} on the interface or on a method.</li>
+ * </ul>
+ * Any other SqlObject annotation is a compile error rather than being silently ignored. Registered mappers and
+ * argument factories are instantiated once per generated class and shared by every statement, so they must be
+ * stateless.
+ */
+@SupportedAnnotationTypes("org.jdbi.examples.generator.GenerateSqlObject")
+public class SqlObjectProcessor extends AbstractProcessor {
+  private static final Set<String> SUPPORTED = new HashSet<>(Arrays.asList(
+      SqlQuery.class.getName(), SqlUpdate.class.getName(), SqlBatch.class.getName(),
+      Bind.class.getName(), BindBean.class.getName(),
+      RegisterBeanMapper.class.getName(), RegisterConstructorMapper.class.getName(),
+      RegisterRowMapper.class.getName(), RegisterColumnMapper.class.getName(),
+      RegisterArgumentFactory.class.getName()));
+
+  private static final String GENERATED = "javax.annotation.processing.Generated";
+
+  private static final List<String> SQL_OBJECT_META_ANNOTATIONS = Arrays.asList(
+      ConfiguringAnnotation.class.getName(),
+      SqlStatementCustomizingAnnotation.class.getName(),
+      SqlMethodDecoratingAnnotation.class.getName());
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+    for (Element element : round.getElementsAnnotatedWith(GenerateSqlObject.class)) {
+      if (element.getKind() != ElementKind.INTERFACE || element.getModifiers().contains(Modifier.PRIVATE)) {
+        error(element, "@GenerateSqlObject must be placed on a non-private interface");
+        continue;
+      }
+      try {
+        new Generator((TypeElement) element).generate();
+      }
+      catch (UnsupportedSqlObjectException e) {
+        error(e.element, e.getMessage());
+      }
+      catch (IOException e) {
+        error(element, "Unable to write generated SqlObject: " + e);
+      }
+    }
+    return true;
+  }
+
+  private void error(Element element, String message) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+
+  private class Generator {
+    private final TypeElement sqlObjectType;
+    private final StringBuilder fields = new StringBuilder();
+    private final StringBuilder methods = new StringBuilder();
+    private int fieldCount;
+
+    Generator(TypeElement sqlObjectType) {
+      this.sqlObjectType = sqlObjectType;
+    }
+
+    void generate() throws IOException {
+      String binaryName = processingEnv.getElementUtils().getBinaryName(sqlObjectType).toString();
+      String implementationName = GeneratedSqlObjectFactory.implementationName(binaryName);
+      int packageEnd = implementationName.lastIndexOf('.');
+      String simpleName = implementationName.substring(packageEnd + 1);
+
+      checkAnnotations(sqlObjectType);
+      List<String> typeConfiguration = configuration(sqlObjectType);
+
+      DeclaredType declaredType = (DeclaredType) sqlObjectType.asType();
+      for (ExecutableElement method : ElementFilter.methodsIn(
+          processingEnv.getElementUtils().getAllMembers(sqlObjectType))) {
+        if (!method.getModifiers().contains(Modifier.ABSTRACT)) {
+          continue;
+        }
+        ExecutableType methodType = (ExecutableType) processingEnv.getTypeUtils().asMemberOf(declaredType, method);
+        if (isGetHandle(method)) {
+          methods.append("\n  @Override\n")
+              .append("  public org.jdbi.v3.core.Handle getHandle() {\n")
+              .append("    return handles.getHandle();\n")
+              .append("  }\n");
+        }
+        else {
+          generateMethod(method, methodType);
+        }
+      }
+
+      StringBuilder source = new StringBuilder();
+      if (packageEnd > 0) {
+        source.append("package ").append(implementationName, 0, packageEnd).append(";\n\n");
+      }
+      // javax.annotation.Generated is gone from JDK 9+, and its replacement does not exist on JDK 8.
+      if (processingEnv.getElementUtils().getTypeElement(GENERATED) != null) {
+        source.append('@').append(GENERATED).append("(\"").append(SqlObjectProcessor.class.getName()).append("\")\n");
+      }
+      source.append("public final class ").append(simpleName).append(" implements ")
+          .append(sqlObjectType.getQualifiedName()).append(" {\n")
+          .append(fields)
+          .append("\n  private final org.jdbi.v3.core.extension.HandleSupplier handles;\n\n")
+          .append("  public ").append(simpleName).append("(org.jdbi.v3.core.extension.HandleSupplier handles) {\n")
+          .append("    this.handles = handles;\n")
+          .append("  }\n\n")
+          .append("  private static void configure(org.jdbi.v3.core.config.Configurable<?> statement) {\n");
+      for (String line : typeConfiguration) {
+        source.append("    statement").append(line).append(";\n");
+      }
+      source.append("  }\n")
+          .append(methods)
+          .append("}\n");
+
+      try (Writer writer = processingEnv.getFiler().createSourceFile(implementationName, sqlObjectType).openWriter()) {
+        writer.write(source.toString());
+      }
+    }
+
+    private boolean isGetHandle(ExecutableElement method) {
+      TypeElement owner = (TypeElement) method.getEnclosingElement();
+      return owner.getQualifiedName().contentEquals(SqlObject.class.getName())
+          && method.getSimpleName().contentEquals("getHandle");
+    }
+
+    private void generateMethod(ExecutableElement method, ExecutableType methodType) {
+      checkAnnotations(method);
+      for (VariableElement parameter : method.getParameters()) {
+        checkAnnotations(parameter);
+      }
+
+      AnnotationMirror query = annotation(method, SqlQuery.class.getName());
+      AnnotationMirror update = annotation(method, SqlUpdate.class.getName());
+      AnnotationMirror batch = annotation(method, SqlBatch.class.getName());
+      int statements = (query == null ? 0 : 1) + (update == null ? 0 : 1) + (batch == null ? 0 : 1);
+      if (statements != 1) {
+        throw new UnsupportedSqlObjectException(method, "Abstract SqlObject methods need exactly one of @SqlQuery, "
+                                                            + "@SqlUpdate or @SqlBatch");
+      }
+
+      methods.append("\n  @Override\n  public ").append(methodType.getReturnType()).append(' ')
+          .append(method.getSimpleName()).append('(');
+      List<? extends VariableElement> parameters = method.getParameters();
+      for (int i = 0; i < parameters.size(); i++) {
+        methods.append(i == 0 ? "" : ", ")
+            .append(methodType.getParameterTypes().get(i)).append(' ').append(parameters.get(i).getSimpleName());
+      }
+      methods.append(')');
+      List<? extends TypeMirror> thrown = methodType.getThrownTypes();
+      for (int i = 0; i < thrown.size(); i++) {
+        methods.append(i == 0 ? " throws " : ", ").append(thrown.get(i));
+      }
+      methods.append(" {\n")
+          .append("    org.jdbi.v3.core.Handle handle = handles.getHandle();\n");
+
+      if (query != null) {
+        generateQuery(method, methodType, sql(method, query));
+      }
+      else if (update != null) {
+        generateUpdate(method, methodType, sql(method, update));
+      }
+      else {
+        generateBatch(method, methodType, sql(method, batch), transactional(batch));
+      }
+      methods.append("  }\n");
+    }
+
+    private void generateQuery(ExecutableElement method, ExecutableType methodType, String sql) {
+      methods.append("    org.jdbi.v3.core.statement.Query statement = handle.createQuery(").append(sql).append(");\n");
+      configureStatement(method);
+      for (int i = 0; i < method.getParameters().size(); i++) {
+        bind("statement", method.getParameters().get(i), methodType.getParameterTypes().get(i), null);
+      }
+
+      TypeMirror returnType = methodType.getReturnType();
+      if (returnType.getKind().isPrimitive()) {
+        String boxed = processingEnv.getTypeUtils().boxedClass((javax.lang.model.type.PrimitiveType) returnType)
+            .getQualifiedName().toString();
+        methods.append("    return statement.mapTo(").append(boxed).append(".class).findOnly();\n");
+      }
+      else if (isErasureOf(returnType, List.class.getName())) {
+        methods.append("    return statement.mapTo(").append(classLiteral(method, typeArgument(method, returnType)))
+            .append(").list();\n");
+      }
+      else if (isErasureOf(returnType, java.util.Optional.class.getName())) {
+        methods.append("    return statement.mapTo(").append(classLiteral(method, typeArgument(method, returnType)))
+            .append(").findFirst();\n");
+      }
+      else if (returnType.getKind() == TypeKind.VOID) {
+        throw new UnsupportedSqlObjectException(method, "@SqlQuery methods must return a result");
+      }
+      else {
+        methods.append("    return statement.mapTo(").append(classLiteral(method, returnType))
+            .append(").findFirst().orElse(null);\n");
+      }
+    }
+
+    private void generateUpdate(ExecutableElement method, ExecutableType methodType, String sql) {
+      methods.append("    org.jdbi.v3.core.statement.Update statement = handle.createUpdate(").append(sql).append(");\n");
+      configureStatement(method);
+      for (int i = 0; i < method.getParameters().size(); i++) {
+        bind("statement", method.getParameters().get(i), methodType.getParameterTypes().get(i), null);
+      }
+
+      TypeKind returnKind = methodType.getReturnType().getKind();
+      if (returnKind == TypeKind.VOID) {
+        methods.append("    statement.execute();\n");
+      }
+      else if (returnKind == TypeKind.INT) {
+        methods.append("    return statement.execute();\n");
+      }
+      else {
+        throw new UnsupportedSqlObjectException(method, "@SqlUpdate methods must return void or int");
+      }
+    }
+
+    private void generateBatch(ExecutableElement method, ExecutableType methodType, String sql,
+                               boolean transactional) {
+      methods.append("    org.jdbi.v3.core.statement.PreparedBatch statement = handle.prepareBatch(").append(sql)
+          .append(");\n");
+      configureStatement(method);
+
+      List<? extends VariableElement> parameters = method.getParameters();
+      List<String> iterators = new ArrayList<>();
+      for (int i = 0; i < parameters.size(); i++) {
+        TypeMirror type = methodType.getParameterTypes().get(i);
+        TypeMirror element = iterableElement(type);
+        if (element != null) {
+          String iterator = "iterator" + iterators.size();
+          methods.append("    java.util.Iterator<? extends ").append(element).append("> ").append(iterator)
+              .append(" = ").append(parameters.get(i).getSimpleName()).append(".iterator();\n");
+          iterators.add(iterator);
+        }
+      }
+      if (iterators.isEmpty()) {
+        throw new UnsupportedSqlObjectException(method, "@SqlBatch methods need at least one Iterable parameter");
+      }
+
+      // Iterate until every argument runs out, and fail if one runs out before the others.
+      methods.append("    while (").append(String.join(".hasNext() || ", iterators)).append(".hasNext()) {\n");
+      if (iterators.size() > 1) {
+        methods.append("      if (!(").append(String.join(".hasNext() && ", iterators)).append(".hasNext())) {\n")
+            .append("        throw new IllegalArgumentException(\"The iterable arguments of ")
+            .append(method.getSimpleName()).append(" must all have the same number of elements\");\n")
+            .append("      }\n");
+      }
+      int iterated = 0;
+      for (int i = 0; i < parameters.size(); i++) {
+        TypeMirror type = methodType.getParameterTypes().get(i);
+        TypeMirror element = iterableElement(type);
+        if (element == null) {
+          bind("  statement", parameters.get(i), type, null);
+        }
+        else {
+          bind("  statement", parameters.get(i), element, iterators.get(iterated++) + ".next()");
+        }
+      }
+      methods.append("      statement.add();\n")
+          .append("    }\n");
+
+      TypeMirror returnType = methodType.getReturnType();
+      String result;
+      if (returnType.getKind() == TypeKind.VOID) {
+        result = "";
+      }
+      else if (returnType.toString().equals("int[]")) {
+        result = "return ";
+      }
+      else {
+        throw new UnsupportedSqlObjectException(method, "@SqlBatch methods must return void or int[]");
+      }
+      // Like the proxy path, an empty batch is not sent to the database at all.
+      methods.append("    if (statement.size() == 0) {\n")
+          .append("      return").append(result.isEmpty() ? "" : " new int[0]").append(";\n")
+          .append("    }\n");
+      if (transactional) {
+        methods.append("    if (handle.isInTransaction()) {\n")
+            .append("      ").append(result).append("statement.execute();\n")
+            .append("    }\n")
+            .append("    else {\n")
+            .append("      ").append(result).append("handle.inTransaction(h -> statement.execute());\n")
+            .append("    }\n");
+      }
+      else {
+        methods.append("    ").append(result).append("statement.execute();\n");
+      }
+    }
+
+    /**
+     * Appends a call binding one parameter to {@code statement}. The value is the parameter itself unless
+     * {@code value} gives another expression, such as the next element of a batch iterator.
+     */
+    private void bind(String statement, VariableElement parameter, TypeMirror type, String value) {
+      String expression = value == null ? parameter.getSimpleName().toString() : value;
+      AnnotationMirror bindBean = annotation(parameter, BindBean.class.getName());
+      if (bindBean != null) {
+        String prefix = stringValue(bindBean, "value");
+        methods.append("    ").append(statement).append(".bindBean(")
+            .append(prefix.isEmpty() ? "" : literal(prefix) + ", ").append(expression).append(");\n");
+        return;
+      }
+
+      AnnotationMirror bind = annotation(parameter, Bind.class.getName());
+      String name = bind == null ? Bind.NO_VALUE : stringValue(bind, "value");
+      if (name.equals(Bind.NO_VALUE)) {
+        name = parameter.getSimpleName().toString();
+      }
+      if (type.getKind().isPrimitive()) {
+        methods.append("    ").append(statement).append(".bind(").append(literal(name)).append(", ")
+            .append(expression).append(");\n");
+      }
+      else {
+        methods.append("    ").append(statement).append(".bindByType(").append(literal(name)).append(", ")
+            .append(expression).append(", ").append(classLiteral(parameter, type)).append(");\n");
+      }
+    }
+
+    private void configureStatement(ExecutableElement method) {
+      methods.append("    configure(statement);\n");
+      for (String line : configuration(method)) {
+        methods.append("    statement").append(line).append(";\n");
+      }
+    }
+
+    /**
+     * Returns the registration calls for the configuring annotations on an element, declaring a static field for
+     * each mapper or argument factory they register.
+     */
+    private List<String> configuration(Element element) {
+      List<String> lines = new ArrayList<>();
+      for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+        String name = annotationName(annotation);
+        List<TypeMirror> types = classValues(annotation, "value");
+        List<String> prefixes = stringValues(annotation, "prefix");
+        for (int i = 0; i < types.size(); i++) {
+          String type = processingEnv.getTypeUtils().erasure(types.get(i)).toString();
+          String prefix = i < prefixes.size() ? ", " + literal(prefixes.get(i)) : "";
+          if (name.equals(RegisterBeanMapper.class.getName())) {
+            lines.add(".registerRowMapper(" + field("org.jdbi.v3.core.mapper.RowMapperFactory",
+                                                    BeanMapper.class.getName() + ".factory(" + type + ".class"
+                                                        + prefix + ")") + ")");
+          }
+          else if (name.equals(RegisterConstructorMapper.class.getName())) {
+            lines.add(".registerRowMapper(" + field("org.jdbi.v3.core.mapper.RowMapperFactory",
+                                                    ConstructorMapper.class.getName() + ".factory(" + type
+                                                        + ".class" + prefix + ")") + ")");
+          }
+          else if (name.equals(RegisterRowMapper.class.getName())) {
+            lines.add(".registerRowMapper(" + field("org.jdbi.v3.core.mapper.RowMapper<?>",
+                                                    "new " + type + "()") + ")");
+          }
+          else if (name.equals(RegisterColumnMapper.class.getName())) {
+            lines.add(".registerColumnMapper(" + field("org.jdbi.v3.core.mapper.ColumnMapper<?>",
+                                                       "new " + type + "()") + ")");
+          }
+          else if (name.equals(RegisterArgumentFactory.class.getName())) {
+            lines.add(".registerArgument(" + field("org.jdbi.v3.core.argument.ArgumentFactory",
+                                                   "new " + type + "()") + ")");
+          }
+        }
+      }
+      return lines;
+    }
+
+    private String field(String type, String initializer) {
+      String name = "CONFIG_" + fieldCount++;
+      fields.append("  private static final ").append(type).append(' ').append(name).append(" = ")
+          .append(initializer).append(";\n");
+      return name;
+    }
+
+    private void checkAnnotations(Element element) {
+      for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+        String name = annotationName(annotation);
+        if (SUPPORTED.contains(name)) {
+          continue;
+        }
+        if (name.startsWith("org.jdbi.v3.sqlobject.") || isSqlObjectMetaAnnotated(annotation)) {
+          throw new UnsupportedSqlObjectException(element, "@" + name + " is not supported on generated SqlObjects");
+        }
+      }
+    }
+
+    private boolean isSqlObjectMetaAnnotated(AnnotationMirror annotation) {
+      for (AnnotationMirror meta : annotation.getAnnotationType().asElement().getAnnotationMirrors()) {
+        if (SQL_OBJECT_META_ANNOTATIONS.contains(annotationName(meta))) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private String sql(ExecutableElement method, AnnotationMirror statement) {
+      String sql = stringValue(statement, "value");
+      if (sql.isEmpty()) {
+        throw new UnsupportedSqlObjectException(method, "Generated SqlObjects need the SQL in the annotation");
+      }
+      return literal(sql);
+    }
+
+    private boolean transactional(AnnotationMirror batch) {
+      for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+          : processingEnv.getElementUtils().getElementValuesWithDefaults(batch).entrySet()) {
+        if (entry.getKey().getSimpleName().contentEquals("transactional")) {
+          return (Boolean) entry.getValue().getValue();
+        }
+      }
+      return true;
+    }
+
+    private TypeMirror iterableElement(TypeMirror type) {
+      if (type.getKind() != TypeKind.DECLARED) {
+        return null;
+      }
+      if (isErasureOf(type, Iterable.class.getName())) {
+        List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+        return arguments.isEmpty() ? processingEnv.getElementUtils().getTypeElement("java.lang.Object").asType()
+                                   : arguments.get(0);
+      }
+      for (TypeMirror supertype : processingEnv.getTypeUtils().directSupertypes(type)) {
+        TypeMirror element = iterableElement(supertype);
+        if (element != null) {
+          return element;
+        }
+      }
+      return null;
+    }
+
+    private boolean isErasureOf(TypeMirror type, String className) {
+      return type.getKind() == TypeKind.DECLARED
+          && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals(className);
+    }
+
+    private TypeMirror typeArgument(Element element, TypeMirror type) {
+      List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+      if (arguments.size() != 1) {
+        throw new UnsupportedSqlObjectException(element, "Raw " + type + " is not supported");
+      }
+      return arguments.get(0);
+    }
+
+    private String classLiteral(Element element, TypeMirror type) {
+      if (type.getKind() != TypeKind.DECLARED && type.getKind() != TypeKind.ARRAY) {
+        throw new UnsupportedSqlObjectException(element, "Cannot map or bind type " + type);
+      }
+      return processingEnv.getTypeUtils().erasure(type) + ".class";
+    }
+
+    private String literal(String value) {
+      return processingEnv.getElementUtils().getConstantExpression(value);
+    }
+  }
+
+  private static AnnotationMirror annotation(Element element, String annotationName) {
+    for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+      if (annotationName(annotation).equals(annotationName)) {
+        return annotation;
+      }
+    }
+    return null;
+  }
+
+  private static String annotationName(AnnotationMirror annotation) {
+    return ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+  }
+
+  private static AnnotationValue value(AnnotationMirror annotation, String name) {
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+        : annotation.getElementValues().entrySet()) {
+      if (entry.getKey().getSimpleName().contentEquals(name)) {
+        return entry.getValue();
+      }
+    }
+    return null;
+  }
+
+  private static String stringValue(AnnotationMirror annotation, String name) {
+    AnnotationValue value = value(annotation, name);
+    return value == null ? "" : (String) value.getValue();
+  }
+
+  private static List<String> stringValues(AnnotationMirror annotation, String name) {
+    List<String> strings = new ArrayList<>();
+    for (AnnotationValue value : arrayValue(annotation, name)) {
+      strings.add((String) value.getValue());
+    }
+    return strings;
+  }
+
+  private static List<TypeMirror> classValues(AnnotationMirror annotation, String name) {
+    List<TypeMirror> types = new ArrayList<>();
+    for (AnnotationValue value : arrayValue(annotation, name)) {
+      if (value.getValue() instanceof TypeMirror) {
+        types.add((TypeMirror) value.getValue());
+      }
+    }
+    return types;
+  }
+
+  /**
+   * Returns the elements of an array-valued annotation member; a single value written without braces comes back
+   * as a one element list.
+   */
+  @SuppressWarnings("unchecked")
+  private static List<? extends AnnotationValue> arrayValue(AnnotationMirror annotation, String name) {
+    AnnotationValue value = value(annotation, name);
+    if (value == null) {
+      return Collections.emptyList();
+    }
+    if (value.getValue() instanceof List) {
+      return (List<? extends AnnotationValue>) value.getValue();
+    }
+    return Collections.singletonList(value);
+  }
+
+  private static class UnsupportedSqlObjectException extends RuntimeException {
+    private final Element element;
+
+    UnsupportedSqlObjectException(Element element, String message) {
+      super(message);
+      this.element = element;
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package org.jdbi.examples;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.MOBILE;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.WORK;
+import static org.joda.money.CurrencyUnit.USD;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import org.assertj.core.api.SoftAssertions;
+import org.jdbi.examples.rule.Allocations;
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.rule.Timings;
+import org.jdbi.examples.v3.Example05SqlObjectApi.Account;
+import org.jdbi.examples.v3.Example05SqlObjectApi.AccountDao;
+import org.jdbi.examples.v3.Example06Joins.Contact;
+import org.jdbi.examples.v3.Example06Joins.ContactDao;
+import org.jdbi.examples.v3.Example06Joins.Phone;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.joda.money.Money;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Times each example under both APIs and fails if jdbi 3 falls further behind jdbi 2 than it already is, by more than a
+ * tolerance given as a fraction by the {@code parity.tolerance} system property, so {@code 0.25} is 25%. By default
+ * the tolerance is a coarse 100%, which catches gross regressions on any machine; with {@link Timings#isAsserted()} it
+ * tightens to 25%. The results are written to {@code target/parity/api-parity.json} along with both library versions,
+ * so they can be collected across builds as {@code jdbi3.version} moves on.
+ */
+public class Example23ApiParity {
+  private static final int ROWS = 100;
+  private static final int OPERATIONS_PER_RUN = 100;
+  private static final double TOLERANCE = Double.parseDouble(
+      System.getProperty("parity.tolerance", Timings.isAsserted() ? "0.25" : "1.0"));
+  private static final Path RESULTS = Paths.get("target", "parity", "api-parity.json");
+
+  /**
+   * How many times longer jdbi 3.0.0-beta1 takes than jdbi 2 today, the highest of a few runs rounded up to the next
+   * half; 1.0 where it is as fast or faster. Most of the gap is a fixed cost per handle and statement, which is why the scenarios that map many rows
+   * come closest. Lower a gap together with the upgrade that closes it, so the suite holds on to the improvement.
+   */
+  private static final Map<String, Double> KNOWN_GAPS = new LinkedHashMap<>();
+
+  static {
+    KNOWN_GAPS.put("Example01FluentApi", 3.5);
+    KNOWN_GAPS.put("Example02RowMapper", 1.5);
+    KNOWN_GAPS.put("Example03RegisterRowMapper", 1.5);
+    KNOWN_GAPS.put("Example04ColumnMapper", 1.0);
+    KNOWN_GAPS.put("Example05SqlObjectApi", 4.0);
+    KNOWN_GAPS.put("Example06Joins", 2.0);
+  }
+
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  @Test
+  public void test() throws Exception {
+    Jdbi jdbi = Jdbi.create(ds.getDataSource());
+    jdbi.installPlugin(new SqlObjectPlugin());
+    jdbi.useExtension(ContactDao.class, dao -> {
+      dao.createContactTable();
+      dao.createPhoneTable();
+      for (int id = 1; id <= ROWS; id++) {
+        dao.insertFullContact(Contact.create(id, "Contact " + id,
+                                             new Phone(ROWS + id * 2, WORK, "800-555-" + id),
+                                             new Phone(ROWS + id * 2 + 1, MOBILE, "801-555-" + id)));
+      }
+    });
+    jdbi.useExtension(AccountDao.class, dao -> {
+      dao.createTable();
+      for (int id = 1; id <= ROWS; id++) {
+        dao.insert(new Account(id, "Account " + id, Money.ofMinor(USD, id)));
+      }
+    });
+
+    Map<String, Allocations.Task> v2 = new org.jdbi.examples.v2.ParityScenarios(ds.getDataSource()).getScenarios();
+    Map<String, Allocations.Task> v3 = new org.jdbi.examples.v3.ParityScenarios(ds.getDataSource()).getScenarios();
+    assertThat(v3.keySet()).containsExactlyElementsOf(v2.keySet());
+    assertThat(KNOWN_GAPS.keySet()).containsExactlyElementsOf(v2.keySet());
+
+    List<Result> results = new ArrayList<>();
+    for (String scenario : v2.keySet()) {
+      long[] nanos = Timings.nanosPerOperation(OPERATIONS_PER_RUN, v2.get(scenario), v3.get(scenario));
+      results.add(new Result(scenario, nanos[0], nanos[1], KNOWN_GAPS.get(scenario) * (1 + TOLERANCE)));
+    }
+    writeResults(results);
+
+    SoftAssertions softly = new SoftAssertions();
+    for (Result result : results) {
+      softly.assertThat(result.ratio())
+          .as("%s: jdbi 3 takes %dns per operation, jdbi 2 %dns", result.scenario, result.v3Nanos, result.v2Nanos)
+          .isLessThanOrEqualTo(result.maxRatio);
+    }
+    softly.assertAll();
+  }
+
+  private static void writeResults(List<Result> results) throws IOException {
+    StringBuilder json = new StringBuilder()
+        .append("{\n")
+        .append("  \"jdbi2\": \"").append(version("jdbi")).append("\",\n")
+        .append("  \"jdbi3\": \"").append(version("jdbi3")).append("\",\n")
+        .append("  \"tolerance\": ").append(TOLERANCE).append(",\n")
+        .append("  \"scenarios\": [");
+    for (int i = 0; i < results.size(); i++) {
+      Result result = results.get(i);
+      json.append(i == 0 ? "\n" : ",\n")
+          .append("    {\"name\": \"").append(result.scenario).append("\", ")
+          .append("\"v2NanosPerOp\": ").append(result.v2Nanos).append(", ")
+          .append("\"v3NanosPerOp\": ").append(result.v3Nanos).append(", ")
+          .append("\"ratio\": ").append(String.format(Locale.ROOT, "%.3f", result.ratio())).append(", ")
+          .append("\"maxRatio\": ").append(String.format(Locale.ROOT, "%.3f", result.maxRatio)).append(", ")
+          .append("\"passed\": ").append(result.ratio() <= result.maxRatio).append("}");
+    }
+    json.append("\n  ]\n}\n");
+
+    Files.createDirectories(RESULTS.getParent());
+    Files.write(RESULTS, json.toString().getBytes(UTF_8));
+  }
+
+  /**
+   * Reads the version of an {@code org.jdbi} artifact from the Maven metadata in its jar.
+   */
+  private static String version(String artifactId) throws IOException {
+    String resource = "/META-INF/maven/org.jdbi/" + artifactId + "/pom.properties";
+    try (InputStream in = Example23ApiParity.class.getResourceAsStream(resource)) {
+      if (in == null) {
+        return "unknown";
+      }
+      Properties properties = new Properties();
+      properties.load(in);
+      return properties.getProperty("version", "unknown");
+    }
+  }
+
+  private static class Result {
+    final String scenario;
+    final long v2Nanos;
+    final long v3Nanos;
+    final double maxRatio;
+
+    Result(String scenario, long v2Nanos, long v3Nanos, double maxRatio) {
+      this.scenario = scenario;
+      this.v2Nanos = v2Nanos;
+      this.v3Nanos = v3Nanos;
+      this.maxRatio = maxRatio;
+    }
+
+    double ratio() {
+      return (double) v3Nanos / v2Nanos;
+    }
+  }
+}
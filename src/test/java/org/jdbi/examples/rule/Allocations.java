@@ -0,0 +1,87 @@
+package org.jdbi.examples.rule;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.Callable;
+
+/**
+ * Measures heap allocation by the current thread, using the HotSpot-specific {@code ThreadMXBean} extension, and the
+ * heap retained by an object graph.
+ */
+public class Allocations {
+  private static final int WARMUP_RUNS = 20;
+  private static final int MEASURED_RUNS = 5;
+
+  private Allocations() {
+  }
+
+  @FunctionalInterface
+  public interface Task {
+    void run() throws Exception;
+  }
+
+  /**
+   * Runs the task repeatedly, first to let the JIT compile it and then to measure it, and returns the fewest bytes
+   * allocated by any measured run divided by {@code operations}. Taking the minimum filters out one-off allocations
+   * such as TLAB refills and lazily initialized caches.
+   */
+  public static long bytesPerOperation(int operations, Task task) throws Exception {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+
+    for (int i = 0; i < WARMUP_RUNS; i++) {
+      task.run();
+    }
+
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < MEASURED_RUNS; i++) {
+      long before = threads.getThreadAllocatedBytes(threadId);
+      task.run();
+      long after = threads.getThreadAllocatedBytes(threadId);
+      best = Math.min(best, after - before);
+    }
+    return best / operations;
+  }
+
+  /**
+   * Runs the task once, without warming up, and returns the bytes it allocated. Meant for one-off costs such as the
+   * first call on a freshly configured Jdbi.
+   */
+  public static long bytesAllocated(Task task) throws Exception {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+
+    long before = threads.getThreadAllocatedBytes(threadId);
+    task.run();
+    return threads.getThreadAllocatedBytes(threadId) - before;
+  }
+
+  /**
+   * Runs the task once and returns the bytes of heap its result keeps reachable, as the growth of the used heap across
+   * the call, each side measured after a full garbage collection. Anything else the task leaves reachable, such as a
+   * lazily filled cache, is counted too, so warm the task up first. Only meaningful for results of a few megabytes or
+   * more.
+   */
+  public static long bytesRetained(Callable<?> task) throws Exception {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    long before = usedHeapAfterGc(memory);
+    Object result = task.call();
+    long after = usedHeapAfterGc(memory);
+    if (result == null) {
+      throw new IllegalArgumentException("Task returned null");
+    }
+    return after - before;
+  }
+
+  private static long usedHeapAfterGc(MemoryMXBean memory) {
+    long used = Long.MAX_VALUE;
+    // Finalizers and reference processing can leave garbage for a later collection, sometimes after one that freed
+    // nothing, so collect a few times regardless.
+    for (int i = 0; i < 5; i++) {
+      memory.gc();
+      used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+    }
+    return used;
+  }
+}
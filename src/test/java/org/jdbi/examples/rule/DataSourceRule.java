@@ -6,11 +6,20 @@ import org.h2.jdbcx.JdbcConnectionPool;
 import org.junit.rules.ExternalResource;
 
 public class DataSourceRule extends ExternalResource {
+  private final String name;
   JdbcConnectionPool dataSource;
 
+  public DataSourceRule() {
+    this("test");
+  }
+
+  public DataSourceRule(String name) {
+    this.name = name;
+  }
+
   @Override
   protected void before() throws Throwable {
-    dataSource = JdbcConnectionPool.create("jdbc:h2:mem:test", "username", "password");
+    dataSource = JdbcConnectionPool.create("jdbc:h2:mem:" + name, "username", "password");
   }
 
   @Override
@@ -0,0 +1,609 @@
+package org.jdbi.examples.rule;
+
+import java.io.PrintWriter;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps a pooled data source to measure how long callers wait for connections and how many they hold, and to find
+ * connections held longer than a threshold. Works anywhere a {@code DataSource} does, including {@code Jdbi.create}
+ * and {@code new DBI}.
+ *
+ * <p>Checking a connection out and back in allocates only the wrapper handed out: counters are atomics, and the
+ * wrappers of checked out connections are linked to each other rather than held in a collection. A wrapper is never
+ * reused, so closing it again, or from two threads at once, checks its connection in exactly once.
+ *
+ * <p>Leaks are found by {@link #findLeaks()}, which a caller runs periodically. By default a leak report holds the
+ * current stack of the thread that checked the connection out, which is where a long-running transaction is stuck. To
+ * find connections that are never closed, turn on {@code recordAcquisitionSites}: every checkout then captures its own
+ * stack, which costs an allocation per checkout.
+ */
+public class InstrumentedDataSource implements DataSource {
+  private static final long[] LATENCY_BUCKET_BOUNDS_NANOS = {
+      10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L, 10_000_000_000L, Long.MAX_VALUE};
+
+  private static final AtomicReferenceFieldUpdater<TrackedConnection, Connection> DELEGATE =
+      AtomicReferenceFieldUpdater.newUpdater(TrackedConnection.class, Connection.class, "delegate");
+
+  private final DataSource delegate;
+  private final long leakThresholdNanos;
+  private final boolean recordAcquisitionSites;
+
+  private final AtomicLongArray latencyHistogram = new AtomicLongArray(LATENCY_BUCKET_BOUNDS_NANOS.length);
+  private final AtomicLong acquisitions = new AtomicLong();
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger peakActive = new AtomicInteger();
+  private final AtomicInteger waiting = new AtomicInteger();
+  private final AtomicInteger peakWaiting = new AtomicInteger();
+
+  /**
+   * Sentinel of the circular list of checked out wrappers, which is guarded by the sentinel's monitor.
+   */
+  private final TrackedConnection checkedOut = new TrackedConnection(null, 0, null);
+
+  public InstrumentedDataSource(DataSource delegate, Duration leakThreshold) {
+    this(delegate, leakThreshold, false);
+  }
+
+  public InstrumentedDataSource(DataSource delegate, Duration leakThreshold, boolean recordAcquisitionSites) {
+    this.delegate = delegate;
+    this.leakThresholdNanos = leakThreshold.toNanos();
+    this.recordAcquisitionSites = recordAcquisitionSites;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    peakWaiting.accumulateAndGet(waiting.incrementAndGet(), Math::max);
+    long start = System.nanoTime();
+    Connection connection;
+    try {
+      connection = delegate.getConnection();
+    }
+    finally {
+      waiting.decrementAndGet();
+    }
+    long acquiredAt = System.nanoTime();
+
+    acquisitions.incrementAndGet();
+    latencyHistogram.incrementAndGet(bucket(acquiredAt - start));
+    peakActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+
+    TrackedConnection tracked = new TrackedConnection(connection, acquiredAt,
+                                                      recordAcquisitionSites ? new Throwable() : null);
+    synchronized (checkedOut) {
+      tracked.next = checkedOut.next;
+      tracked.prev = checkedOut;
+      checkedOut.next.prev = tracked;
+      checkedOut.next = tracked;
+    }
+    return tracked;
+  }
+
+  private static int bucket(long nanos) {
+    int bucket = 0;
+    while (nanos > LATENCY_BUCKET_BOUNDS_NANOS[bucket]) {
+      bucket++;
+    }
+    return bucket;
+  }
+
+  private void checkIn(TrackedConnection tracked) {
+    active.decrementAndGet();
+    synchronized (checkedOut) {
+      tracked.prev.next = tracked.next;
+      tracked.next.prev = tracked.prev;
+      tracked.prev = null;
+      tracked.next = null;
+    }
+  }
+
+  public long getAcquisitions() {
+    return acquisitions.get();
+  }
+
+  /**
+   * Connections checked out and not yet closed.
+   */
+  public int getActive() {
+    return active.get();
+  }
+
+  public int getPeakActive() {
+    return peakActive.get();
+  }
+
+  /**
+   * Threads currently inside {@link #getConnection()}, waiting for the pool to hand out a connection.
+   */
+  public int getWaiting() {
+    return waiting.get();
+  }
+
+  public int getPeakWaiting() {
+    return peakWaiting.get();
+  }
+
+  /**
+   * The upper bounds, in nanoseconds, of the buckets of {@link #getLatencyHistogram()}. The last bucket is unbounded.
+   */
+  public static long[] getLatencyBucketBoundsNanos() {
+    return LATENCY_BUCKET_BOUNDS_NANOS.clone();
+  }
+
+  /**
+   * How many checkouts took at most each bucket's bound and more than the previous bucket's.
+   */
+  public long[] getLatencyHistogram() {
+    long[] counts = new long[latencyHistogram.length()];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = latencyHistogram.get(i);
+    }
+    return counts;
+  }
+
+  /**
+   * Returns the connections that have been checked out for longer than the leak threshold.
+   */
+  public List<ConnectionLeak> findLeaks() {
+    long now = System.nanoTime();
+    List<TrackedConnection> held = new ArrayList<>();
+    synchronized (checkedOut) {
+      for (TrackedConnection tracked = checkedOut.next; tracked != checkedOut; tracked = tracked.next) {
+        if (now - tracked.acquiredAt >= leakThresholdNanos) {
+          held.add(tracked);
+        }
+      }
+    }
+    // Thread stacks are taken outside the lock, so a slow scan does not hold up checkouts.
+    List<ConnectionLeak> leaks = new ArrayList<>();
+    for (TrackedConnection tracked : held) {
+      ConnectionLeak leak = tracked.leakAsOf(now);
+      if (leak != null) {
+        leaks.add(leak);
+      }
+    }
+    return leaks;
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    throw new SQLFeatureNotSupportedException("Credentials are configured on the underlying data source");
+  }
+
+  @Override
+  public PrintWriter getLogWriter() throws SQLException {
+    return delegate.getLogWriter();
+  }
+
+  @Override
+  public void setLogWriter(PrintWriter out) throws SQLException {
+    delegate.setLogWriter(out);
+  }
+
+  @Override
+  public void setLoginTimeout(int seconds) throws SQLException {
+    delegate.setLoginTimeout(seconds);
+  }
+
+  @Override
+  public int getLoginTimeout() throws SQLException {
+    return delegate.getLoginTimeout();
+  }
+
+  @Override
+  public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+    return delegate.getParentLogger();
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    return iface.isInstance(delegate) ? iface.cast(delegate) : delegate.unwrap(iface);
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return iface.isInstance(delegate) || delegate.isWrapperFor(iface);
+  }
+
+  /**
+   * A connection held past the leak threshold.
+   */
+  public static class ConnectionLeak {
+    private final String threadName;
+    private final long heldNanos;
+    private final StackTraceElement[] stackTrace;
+    private final boolean acquisitionSite;
+
+    ConnectionLeak(String threadName, long heldNanos, StackTraceElement[] stackTrace, boolean acquisitionSite) {
+      this.threadName = threadName;
+      this.heldNanos = heldNanos;
+      this.stackTrace = stackTrace;
+      this.acquisitionSite = acquisitionSite;
+    }
+
+    /**
+     * The thread that checked the connection out.
+     */
+    public String getThreadName() {
+      return threadName;
+    }
+
+    public long getHeldNanos() {
+      return heldNanos;
+    }
+
+    /**
+     * Where the connection was checked out if acquisition sites are recorded, otherwise where the thread that checked
+     * it out is now.
+     */
+    public StackTraceElement[] getStackTrace() {
+      return stackTrace.clone();
+    }
+
+    public boolean isAcquisitionSite() {
+      return acquisitionSite;
+    }
+  }
+
+  private class TrackedConnection implements Connection {
+    // Not private, so that DELEGATE can reach it on Java 8.
+    volatile Connection delegate;
+    private final long acquiredAt;
+    private final Thread owner;
+    private final Throwable acquisitionSite;
+
+    // Links in the list of checked out connections.
+    private TrackedConnection prev = this;
+    private TrackedConnection next = this;
+
+    TrackedConnection(Connection connection, long acquiredAt, Throwable acquisitionSite) {
+      this.delegate = connection;
+      this.acquiredAt = acquiredAt;
+      this.owner = Thread.currentThread();
+      this.acquisitionSite = acquisitionSite;
+    }
+
+    ConnectionLeak leakAsOf(long now) {
+      Thread thread = owner;
+      Throwable site = acquisitionSite;
+      long held = now - acquiredAt;
+      if (delegate == null || held < leakThresholdNanos) {
+        return null;
+      }
+      return site != null
+          ? new ConnectionLeak(thread.getName(), held, site.getStackTrace(), true)
+          : new ConnectionLeak(thread.getName(), held, thread.getStackTrace(), false);
+    }
+
+    private Connection connection() throws SQLException {
+      Connection connection = delegate;
+      if (connection == null) {
+        throw new SQLException("Connection is closed");
+      }
+      return connection;
+    }
+
+    @Override
+    public void close() throws SQLException {
+      Connection connection = DELEGATE.getAndSet(this, null);
+      if (connection == null) {
+        return;
+      }
+      try {
+        connection.close();
+      }
+      finally {
+        checkIn(this);
+      }
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+      Connection connection = delegate;
+      return connection == null || connection.isClosed();
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+      return connection().createStatement();
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+      return connection().prepareStatement(sql);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql) throws SQLException {
+      return connection().prepareCall(sql);
+    }
+
+    @Override
+    public String nativeSQL(String sql) throws SQLException {
+      return connection().nativeSQL(sql);
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+      connection().setAutoCommit(autoCommit);
+    }
+
+    @Override
+    public boolean getAutoCommit() throws SQLException {
+      return connection().getAutoCommit();
+    }
+
+    @Override
+    public void commit() throws SQLException {
+      connection().commit();
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+      connection().rollback();
+    }
+
+    @Override
+    public DatabaseMetaData getMetaData() throws SQLException {
+      return connection().getMetaData();
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+      connection().setReadOnly(readOnly);
+    }
+
+    @Override
+    public boolean isReadOnly() throws SQLException {
+      return connection().isReadOnly();
+    }
+
+    @Override
+    public void setCatalog(String catalog) throws SQLException {
+      connection().setCatalog(catalog);
+    }
+
+    @Override
+    public String getCatalog() throws SQLException {
+      return connection().getCatalog();
+    }
+
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+      connection().setTransactionIsolation(level);
+    }
+
+    @Override
+    public int getTransactionIsolation() throws SQLException {
+      return connection().getTransactionIsolation();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+      return connection().getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+      connection().clearWarnings();
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+      return connection().createStatement(resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
+        throws SQLException {
+      return connection().prepareStatement(sql, resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+      return connection().prepareCall(sql, resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public Map<String, Class<?>> getTypeMap() throws SQLException {
+      return connection().getTypeMap();
+    }
+
+    @Override
+    public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+      connection().setTypeMap(map);
+    }
+
+    @Override
+    public void setHoldability(int holdability) throws SQLException {
+      connection().setHoldability(holdability);
+    }
+
+    @Override
+    public int getHoldability() throws SQLException {
+      return connection().getHoldability();
+    }
+
+    @Override
+    public Savepoint setSavepoint() throws SQLException {
+      return connection().setSavepoint();
+    }
+
+    @Override
+    public Savepoint setSavepoint(String name) throws SQLException {
+      return connection().setSavepoint(name);
+    }
+
+    @Override
+    public void rollback(Savepoint savepoint) throws SQLException {
+      connection().rollback(savepoint);
+    }
+
+    @Override
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+      connection().releaseSavepoint(savepoint);
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+        throws SQLException {
+      return connection().createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency,
+                                              int resultSetHoldability) throws SQLException {
+      return connection().prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency,
+                                         int resultSetHoldability) throws SQLException {
+      return connection().prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+      return connection().prepareStatement(sql, autoGeneratedKeys);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+      return connection().prepareStatement(sql, columnIndexes);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+      return connection().prepareStatement(sql, columnNames);
+    }
+
+    @Override
+    public Clob createClob() throws SQLException {
+      return connection().createClob();
+    }
+
+    @Override
+    public Blob createBlob() throws SQLException {
+      return connection().createBlob();
+    }
+
+    @Override
+    public NClob createNClob() throws SQLException {
+      return connection().createNClob();
+    }
+
+    @Override
+    public SQLXML createSQLXML() throws SQLException {
+      return connection().createSQLXML();
+    }
+
+    @Override
+    public boolean isValid(int timeout) throws SQLException {
+      Connection connection = delegate;
+      return connection != null && connection.isValid(timeout);
+    }
+
+    @Override
+    public void setClientInfo(String name, String value) throws SQLClientInfoException {
+      clientInfoConnection().setClientInfo(name, value);
+    }
+
+    @Override
+    public void setClientInfo(Properties properties) throws SQLClientInfoException {
+      clientInfoConnection().setClientInfo(properties);
+    }
+
+    private Connection clientInfoConnection() throws SQLClientInfoException {
+      try {
+        return connection();
+      }
+      catch (SQLException e) {
+        throw new SQLClientInfoException(e.getMessage(), null, e);
+      }
+    }
+
+    @Override
+    public String getClientInfo(String name) throws SQLException {
+      return connection().getClientInfo(name);
+    }
+
+    @Override
+    public Properties getClientInfo() throws SQLException {
+      return connection().getClientInfo();
+    }
+
+    @Override
+    public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+      return connection().createArrayOf(typeName, elements);
+    }
+
+    @Override
+    public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+      return connection().createStruct(typeName, attributes);
+    }
+
+    @Override
+    public void setSchema(String schema) throws SQLException {
+      connection().setSchema(schema);
+    }
+
+    @Override
+    public String getSchema() throws SQLException {
+      return connection().getSchema();
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+      connection().abort(executor);
+    }
+
+    @Override
+    public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+      connection().setNetworkTimeout(executor, milliseconds);
+    }
+
+    @Override
+    public int getNetworkTimeout() throws SQLException {
+      return connection().getNetworkTimeout();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+      Connection connection = connection();
+      return iface.isInstance(connection) ? iface.cast(connection) : connection.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+      Connection connection = connection();
+      return iface.isInstance(connection) || connection.isWrapperFor(iface);
+    }
+  }
+}
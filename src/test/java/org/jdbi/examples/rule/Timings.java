@@ -0,0 +1,58 @@
+package org.jdbi.examples.rule;
+
+import java.util.Arrays;
+
+/**
+ * Measures elapsed time per operation. Meant for comparing alternatives within one test run, not for absolute numbers.
+ */
+public class Timings {
+  private static final int WARMUP_RUNS = 50;
+  private static final int MEASURED_RUNS = 21;
+
+  private Timings() {
+  }
+
+  /**
+   * Whether tests should assert on the times measured here. Comparisons of wall-clock time only hold on a quiet machine,
+   * so they are off unless the build is run with {@code -Dtimings=true}; the times are still measured and reported.
+   */
+  public static boolean isAsserted() {
+    return Boolean.getBoolean("timings");
+  }
+
+  /**
+   * Runs each task {@code operations} times per run, first to let the JIT compile them and then to measure them, and
+   * returns the nanoseconds per operation of each task's fastest measured run, in order. Like
+   * {@link Allocations#bytesPerOperation}, taking the minimum filters out runs slowed by garbage collection, background
+   * compilation or other load, which on a small machine vary far more between test runs than the code under test.
+   * Runs of the tasks are interleaved so that slower phases of the machine affect all of them alike.
+   */
+  public static long[] nanosPerOperation(int operations, Allocations.Task... tasks) throws Exception {
+    for (int i = 0; i < WARMUP_RUNS; i++) {
+      for (Allocations.Task task : tasks) {
+        run(task, operations);
+      }
+    }
+
+    long[][] samples = new long[tasks.length][MEASURED_RUNS];
+    for (int i = 0; i < MEASURED_RUNS; i++) {
+      for (int t = 0; t < tasks.length; t++) {
+        long start = System.nanoTime();
+        run(tasks[t], operations);
+        samples[t][i] = System.nanoTime() - start;
+      }
+    }
+
+    long[] fastest = new long[tasks.length];
+    for (int t = 0; t < tasks.length; t++) {
+      fastest[t] = Arrays.stream(samples[t]).min().getAsLong() / operations;
+    }
+    return fastest;
+  }
+
+  private static void run(Allocations.Task task, int operations) throws Exception {
+    for (int i = 0; i < operations; i++) {
+      task.run();
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package org.jdbi.examples.v2;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.jdbi.examples.rule.Allocations;
+import org.jdbi.examples.v2.Example05SqlObjectApi.AccountDao;
+import org.jdbi.examples.v2.Example06Joins.ContactDao;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.tweak.BeanMapperFactory;
+
+/**
+ * The examples reduced to one operation each, for comparing the two APIs. Every scenario opens its own handle, set up
+ * like the example it comes from. Expects the {@code contacts}, {@code phones} and {@code accounts} tables of the
+ * examples to exist; see {@code Example23ApiParity}.
+ */
+public class ParityScenarios {
+  private final Map<String, Allocations.Task> scenarios = new LinkedHashMap<>();
+
+  public ParityScenarios(DataSource dataSource) {
+    DBI plain = new DBI(dataSource);
+    scenarios.put("Example01FluentApi", () -> {
+      try (Handle h = plain.open()) {
+        h.createQuery("select name from contacts where id = :id")
+            .bind("id", 1)
+            .mapTo(String.class)
+            .first();
+      }
+    });
+
+    scenarios.put("Example02RowMapper", () -> {
+      try (Handle h = plain.open()) {
+        h.createQuery("select * from contacts order by id")
+            .map(new Example02RowMapper.ContactMapper())
+            .list();
+      }
+    });
+
+    DBI withContactMapper = new DBI(dataSource);
+    withContactMapper.registerMapper(new Example03RegisterRowMapper.ContactMapper());
+    scenarios.put("Example03RegisterRowMapper", () -> {
+      try (Handle h = withContactMapper.open()) {
+        h.createQuery("select * from contacts order by id")
+            .mapTo(Example03RegisterRowMapper.Contact.class)
+            .list();
+      }
+    });
+
+    DBI withMoney = new DBI(dataSource);
+    withMoney.registerMapper(new BeanMapperFactory());
+    withMoney.registerColumnMapper(new Example04ColumnMapper.MoneyMapper());
+    withMoney.registerArgumentFactory(new Example04ColumnMapper.MoneyArgumentFactory());
+    scenarios.put("Example04ColumnMapper", () -> {
+      try (Handle h = withMoney.open()) {
+        h.createQuery("select * from accounts order by id")
+            .mapTo(Example04ColumnMapper.Account.class)
+            .list();
+      }
+    });
+
+    scenarios.put("Example05SqlObjectApi", () -> {
+      try (Handle h = plain.open()) {
+        h.attach(AccountDao.class).getById(1);
+      }
+    });
+
+    scenarios.put("Example06Joins", () -> {
+      try (Handle h = plain.open()) {
+        h.attach(ContactDao.class).listFullContacts();
+      }
+    });
+  }
+
+  /**
+   * The scenarios, by the name of the example each one comes from.
+   */
+  public Map<String, Allocations.Task> getScenarios() {
+    return scenarios;
+  }
+}
@@ -10,6 +10,7 @@ import java.sql.SQLException;
 import java.sql.Types;
 import java.util.List;
 
+import org.jdbi.examples.generator.GenerateSqlObject;
 import org.jdbi.examples.rule.DataSourceRule;
 import org.jdbi.v3.core.Jdbi;
 import org.jdbi.v3.core.argument.AbstractArgumentFactory;
@@ -32,6 +33,7 @@ public class Example05SqlObjectApi {
   @Rule
   public DataSourceRule ds = new DataSourceRule();
 
+  @GenerateSqlObject
   @RegisterBeanMapper(Account.class)
   @RegisterColumnMapper(MoneyMapper.class)
   @RegisterArgumentFactory(MoneyArgumentFactory.class)
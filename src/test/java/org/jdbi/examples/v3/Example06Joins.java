@@ -11,6 +11,7 @@ import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 
+import org.jdbi.examples.generator.GenerateSqlObject;
 import org.jdbi.examples.rule.DataSourceRule;
 import org.jdbi.v3.core.Jdbi;
 import org.jdbi.v3.core.mapper.reflect.ConstructorMapper;
@@ -26,6 +27,7 @@ public class Example06Joins {
   @Rule
   public DataSourceRule ds = new DataSourceRule();
 
+  @GenerateSqlObject
   public interface ContactDao extends SqlObject {
     @SqlUpdate("create table contacts (id int primary key, name varchar(100))")
     void createContactTable();
@@ -0,0 +1,327 @@
+package org.jdbi.examples.v3;
+
+import static java.util.stream.Collectors.joining;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.joda.money.CurrencyUnit.USD;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.v3.Example05SqlObjectApi.Account;
+import org.jdbi.examples.v3.Example05SqlObjectApi.AccountDao;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.spi.JdbiPlugin;
+import org.jdbi.v3.sqlobject.HandlerDecorators;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.joda.money.Money;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example07ReadWriteSplitting {
+  @Rule
+  public DataSourceRule primary = new DataSourceRule("primary");
+
+  @Rule
+  public DataSourceRule replica = new DataSourceRule("replica");
+
+  @Test
+  public void test() throws Exception {
+    for (DataSource dataSource : Arrays.asList(primary.getDataSource(), replica.getDataSource())) {
+      Jdbi.create(dataSource)
+          .installPlugin(new SqlObjectPlugin())
+          .useExtension(AccountDao.class, AccountDao::createTable);
+    }
+
+    ReadWriteSplittingDataSource routing = new ReadWriteSplittingDataSource(primary.getDataSource(),
+                                                                            replica.getDataSource());
+    Replicator replicator = new Replicator(primary.getDataSource(), replica.getDataSource(), "accounts");
+
+    Jdbi jdbi = Jdbi.create(routing);
+    jdbi.installPlugin(new SqlObjectPlugin());
+    jdbi.installPlugin(new ReadWriteSplittingPlugin());
+
+    Money tenDollars = Money.of(USD, 10);
+    Money fiveDollars = Money.of(USD, 5);
+
+    AccountDao dao = jdbi.onDemand(AccountDao.class);
+    dao.insert(new Account(1, "Alice", tenDollars));
+    dao.insert(new Account(2, "Bob", fiveDollars));
+
+    // Queries go to the replica, which has not caught up yet.
+    assertThat(dao.list()).isEmpty();
+
+    replicator.sync();
+
+    assertThat(dao.list())
+        .extracting(Account::getId, Account::getName, Account::getBalance)
+        .containsExactly(tuple(1, "Alice", tenDollars),
+                         tuple(2, "Bob", fiveDollars));
+
+    // A transaction reads its own writes from the primary.
+    Account robert = jdbi.inTransaction(h -> {
+      AccountDao txDao = h.attach(AccountDao.class);
+      txDao.update(new Account(2, "Robert", tenDollars));
+      return txDao.getById(2);
+    });
+    assertThat(robert)
+        .extracting(Account::getId, Account::getName, Account::getBalance)
+        .containsExactly(2, "Robert", tenDollars);
+
+    // So does a handle that has already written, even outside a transaction.
+    jdbi.useExtension(AccountDao.class, handleDao -> {
+      handleDao.insert(new Account(3, "Carol", fiveDollars));
+      assertThat(handleDao.getById(3))
+          .extracting(Account::getId, Account::getName)
+          .containsExactly(3, "Carol");
+    });
+
+    // Everybody else sees the replica until it catches up.
+    assertThat(dao.getById(2))
+        .extracting(Account::getName)
+        .containsExactly("Bob");
+    assertThat(dao.getById(3)).isNull();
+
+    replicator.sync();
+
+    assertThat(dao.getById(2))
+        .extracting(Account::getName)
+        .containsExactly("Robert");
+
+    // 4 inserts/updates + 2 pinned queries on the primary, 5 unpinned queries on the replica.
+    assertThat(routing.getPrimaryStatements()).isEqualTo(6);
+    assertThat(routing.getReplicaStatements()).isEqualTo(5);
+  }
+
+  /**
+   * Registers a handler decorator which marks every {@code @SqlQuery} method as eligible to be served by a replica.
+   */
+  public static class ReadWriteSplittingPlugin implements JdbiPlugin {
+    @Override
+    public void customizeJdbi(Jdbi jdbi) {
+      jdbi.getConfig(HandlerDecorators.class).register((handler, sqlObjectType, method) ->
+          method.isAnnotationPresent(SqlQuery.class)
+              ? (target, args, handle) -> ReadWriteSplittingDataSource.withReadIntent(() -> handler.invoke(target, args, handle))
+              : handler);
+    }
+  }
+
+  /**
+   * A data source that hands out routing connections. Statements prepared with read intent go to one of the replicas,
+   * round robin; everything else goes to the primary. Once a connection has touched the primary for a write, or has
+   * started a transaction, it stays pinned to the primary for the rest of its life so it always reads its own writes.
+   *
+   * <p>Physical connections are checked out lazily, so a handle which only reads never holds a primary connection.
+   */
+  public static class ReadWriteSplittingDataSource implements DataSource {
+    private static final ThreadLocal<Boolean> READ_INTENT = ThreadLocal.withInitial(() -> false);
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final AtomicLong primaryStatements = new AtomicLong();
+    private final AtomicLong replicaStatements = new AtomicLong();
+
+    public ReadWriteSplittingDataSource(DataSource primary, DataSource... replicas) {
+      this.primary = primary;
+      this.replicas = Arrays.asList(replicas);
+    }
+
+    public static <T> T withReadIntent(Callable<T> callable) throws Exception {
+      boolean previous = READ_INTENT.get();
+      READ_INTENT.set(true);
+      try {
+        return callable.call();
+      }
+      finally {
+        READ_INTENT.set(previous);
+      }
+    }
+
+    public long getPrimaryStatements() {
+      return primaryStatements.get();
+    }
+
+    public long getReplicaStatements() {
+      return replicaStatements.get();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                                 new Class<?>[] {Connection.class},
+                                                 new RoutingConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+      throw new SQLFeatureNotSupportedException("Credentials are configured on the underlying data sources");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+      return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+      primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+      primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+      return primary.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+      return primary.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+      throw new SQLException("Not a wrapper for " + iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+      return false;
+    }
+
+    private class RoutingConnection implements InvocationHandler {
+      private Connection primaryConnection;
+      private Connection replicaConnection;
+      private boolean pinned;
+      private boolean closed;
+
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+          case "close":
+            closed = true;
+            try {
+              closeIfOpened(replicaConnection);
+            }
+            finally {
+              closeIfOpened(primaryConnection);
+            }
+            return null;
+          case "isClosed":
+            return closed;
+          case "getAutoCommit":
+            return primaryConnection == null || primaryConnection.getAutoCommit();
+          case "setAutoCommit":
+            if ((Boolean) args[0] && primaryConnection == null) {
+              return null;
+            }
+            break;
+          case "commit":
+          case "rollback":
+            if (primaryConnection == null) {
+              return null;
+            }
+            break;
+          case "prepareStatement":
+          case "prepareCall":
+          case "createStatement":
+            if (READ_INTENT.get() && !pinned) {
+              replicaStatements.incrementAndGet();
+              return invokeOn(replica(), method, args);
+            }
+            primaryStatements.incrementAndGet();
+            break;
+          default:
+            break;
+        }
+        return invokeOn(primary(), method, args);
+      }
+
+      private Connection primary() throws SQLException {
+        if (primaryConnection == null) {
+          primaryConnection = primary.getConnection();
+        }
+        pinned = true;
+        return primaryConnection;
+      }
+
+      private Connection replica() throws SQLException {
+        if (replicaConnection == null) {
+          int index = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+          replicaConnection = replicas.get(index).getConnection();
+        }
+        return replicaConnection;
+      }
+
+      private Object invokeOn(Connection connection, Method method, Object[] args) throws Throwable {
+        try {
+          return method.invoke(connection, args);
+        }
+        catch (InvocationTargetException e) {
+          throw e.getCause();
+        }
+      }
+
+      private void closeIfOpened(Connection connection) throws SQLException {
+        if (connection != null) {
+          connection.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * Stand-in for asynchronous replication: copies the given tables from the primary to the replica on demand, so tests
+   * control exactly when the replica catches up.
+   */
+  public static class Replicator {
+    private final DataSource primary;
+    private final DataSource replica;
+    private final List<String> tables;
+
+    public Replicator(DataSource primary, DataSource replica, String... tables) {
+      this.primary = primary;
+      this.replica = replica;
+      this.tables = Arrays.asList(tables);
+    }
+
+    public void sync() {
+      try (Handle source = Jdbi.open(primary);
+           Handle target = Jdbi.open(replica)) {
+        target.useTransaction(h -> {
+          for (String table : tables) {
+            List<Map<String, Object>> rows = source.createQuery("select * from " + table).mapToMap().list();
+            h.execute("delete from " + table);
+            for (Map<String, Object> row : rows) {
+              h.createUpdate("insert into " + table + " (" + String.join(", ", row.keySet()) + ") "
+                                 + "values (" + row.keySet().stream().map(c -> ":" + c).collect(joining(", ")) + ")")
+                  .bindMap(row)
+                  .execute();
+            }
+          }
+        });
+      }
+    }
+  }
+}
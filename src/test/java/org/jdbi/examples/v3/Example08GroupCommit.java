@@ -0,0 +1,320 @@
+package org.jdbi.examples.v3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.joda.money.CurrencyUnit.USD;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.rule.Timings;
+import org.jdbi.examples.v3.Example05SqlObjectApi.Account;
+import org.jdbi.examples.v3.Example05SqlObjectApi.AccountDao;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.joda.money.Money;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example08GroupCommit {
+  private static final int THREADS = 8;
+  private static final int ACCOUNTS_PER_THREAD = 5;
+  private static final int ACCOUNTS = THREADS * ACCOUNTS_PER_THREAD;
+  private static final int UPDATES_PER_THREAD = 50;
+  private static final int MAX_BATCH_SIZE = 100;
+  private static final long MAX_DELAY_MILLIS = 5;
+
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  @Test
+  public void test() throws Exception {
+    Jdbi jdbi = Jdbi.create(ds.getDataSource());
+    jdbi.installPlugin(new SqlObjectPlugin());
+
+    jdbi.useExtension(AccountDao.class, dao -> {
+      dao.createTable();
+      for (int id = 0; id < ACCOUNTS; id++) {
+        dao.insert(new Account(id, "Account " + id, Money.zero(USD)));
+      }
+    });
+
+    // One transaction per update: every update pays for its own commit.
+    AtomicLong singleCommits = new AtomicLong();
+    long singleStart = System.nanoTime();
+    long[] singleLatencies = runConcurrently(update -> {
+      jdbi.useTransaction(h -> h.attach(AccountDao.class).update(update));
+      singleCommits.incrementAndGet();
+      return CompletableFuture.completedFuture(null);
+    });
+    long singleMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - singleStart);
+    assertThat(singleCommits.get()).isEqualTo(THREADS * UPDATES_PER_THREAD);
+
+    // Group commit: concurrent updates share a transaction per window.
+    // Callers wait up to a window for their group to commit, so the latency of each update is what this trades away.
+    try (GroupCommitExecutor executor =
+             new GroupCommitExecutor(jdbi, MAX_BATCH_SIZE, MAX_DELAY_MILLIS, TimeUnit.MILLISECONDS)) {
+      long[] groupLatencies = runConcurrently(executor::update);
+      long singleP99 = p99Millis(singleLatencies);
+      long groupP99 = p99Millis(groupLatencies);
+      String summary = String.format("%d single commits in %dms, p99 %dms; %d group commits, p99 %dms",
+                                     singleCommits.get(), singleMillis, singleP99, executor.getCommits(), groupP99);
+
+      assertThat(executor.getUpdates()).as(summary).isEqualTo(THREADS * UPDATES_PER_THREAD);
+      assertThat(executor.getCommits()).as(summary).isLessThan(singleCommits.get());
+      if (Timings.isAsserted()) {
+        // Each thread queues all its updates at once, so they wait on the groups ahead of them; even so, hardly any
+        // should wait as long as committing them one by one took.
+        assertThat(groupP99).as(summary).isLessThan(singleMillis);
+      }
+
+      // A failing update is reported to its own caller, without failing the rest of its group.
+      char[] tooLong = new char[200];
+      Arrays.fill(tooLong, 'x');
+      CompletableFuture<Void> bad = executor.update(new Account(0, new String(tooLong), Money.zero(USD)));
+      CompletableFuture<Void> good = executor.update(new Account(1, "Bob", Money.of(USD, 1)));
+
+      assertThat(catchThrowable(bad::get)).isInstanceOf(ExecutionException.class);
+      good.get();
+    }
+
+    // Once closed, the executor turns new requests away rather than leaving them pending.
+    GroupCommitExecutor closed =
+        new GroupCommitExecutor(jdbi, MAX_BATCH_SIZE, MAX_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    closed.close();
+    assertThat(catchThrowable(() -> closed.update(new Account(1, "Bob", Money.of(USD, 1)))))
+        .isInstanceOf(IllegalStateException.class);
+
+    jdbi.useExtension(AccountDao.class, dao -> {
+      assertThat(dao.getById(0).getName()).isEqualTo("Account 0");
+      assertThat(dao.getById(1).getName()).isEqualTo("Bob");
+      for (int id = 2; id < ACCOUNTS; id++) {
+        int lastUpdate = UPDATES_PER_THREAD - ACCOUNTS_PER_THREAD + id % ACCOUNTS_PER_THREAD;
+        assertThat(dao.getById(id).getBalance()).isEqualTo(Money.of(USD, lastUpdate));
+      }
+    });
+  }
+
+  /**
+   * Runs {@code THREADS} threads which each update their own accounts {@code UPDATES_PER_THREAD} times, round robin.
+   * Returns the nanoseconds each update took from the request until its future completed.
+   */
+  private static long[] runConcurrently(UpdateFunction updater) throws Exception {
+    long[] latencies = new long[THREADS * UPDATES_PER_THREAD];
+    ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<?>> results = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        int thread = t;
+        results.add(threads.submit(() -> {
+          List<CompletableFuture<Void>> pending = new ArrayList<>();
+          for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+            int id = thread * ACCOUNTS_PER_THREAD + i % ACCOUNTS_PER_THREAD;
+            int sample = thread * UPDATES_PER_THREAD + i;
+            long start = System.nanoTime();
+            pending.add(updater.update(new Account(id, "Account " + id, Money.of(USD, i)))
+                            .whenComplete((result, e) -> latencies[sample] = System.nanoTime() - start));
+          }
+          CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).get();
+          return null;
+        }));
+      }
+      for (Future<?> result : results) {
+        result.get();
+      }
+      return latencies;
+    }
+    finally {
+      threads.shutdown();
+    }
+  }
+
+  private static long p99Millis(long[] latencies) {
+    long[] sorted = latencies.clone();
+    Arrays.sort(sorted);
+    return TimeUnit.NANOSECONDS.toMillis(sorted[(int) Math.ceil(sorted.length * 0.99) - 1]);
+  }
+
+  @FunctionalInterface
+  interface UpdateFunction {
+    CompletableFuture<Void> update(Account account) throws Exception;
+  }
+
+  /**
+   * Collects {@link AccountDao#update(Account)} requests from many threads and applies them in one transaction per
+   * time window, or sooner once {@code maxBatchSize} requests are waiting. Futures complete after the group's commit.
+   *
+   * <p>A group first runs without savepoints, so each request costs a single statement. If any request fails, that
+   * transaction is rolled back and the group is run again with a savepoint around each request, so the failure only
+   * fails that request's future. Requests still waiting when the executor closes, or when the committer thread dies,
+   * fail instead of being left pending.
+   */
+  public static class GroupCommitExecutor implements AutoCloseable {
+    private final Jdbi jdbi;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong updates = new AtomicLong();
+    private final Thread committer;
+    // Written under the lock, so no request can be queued after the committer has seen it set.
+    private volatile boolean closed;
+
+    public GroupCommitExecutor(Jdbi jdbi, int maxBatchSize, long maxDelay, TimeUnit unit) {
+      this.jdbi = jdbi;
+      this.maxBatchSize = maxBatchSize;
+      this.maxDelayNanos = unit.toNanos(maxDelay);
+      this.committer = new Thread(this::run, "group-commit");
+      this.committer.setDaemon(true);
+      this.committer.start();
+    }
+
+    public CompletableFuture<Void> update(Account account) {
+      Request request = new Request(account);
+      synchronized (this) {
+        if (closed) {
+          throw new IllegalStateException("Executor is closed");
+        }
+        queue.add(request);
+      }
+      return request.future;
+    }
+
+    public long getCommits() {
+      return commits.get();
+    }
+
+    public long getUpdates() {
+      return updates.get();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+      synchronized (this) {
+        closed = true;
+      }
+      committer.join();
+    }
+
+    private void run() {
+      List<Request> batch = new ArrayList<>(maxBatchSize);
+      Throwable failure = null;
+      try {
+        while (!closed || !queue.isEmpty()) {
+          Request first = queue.poll(10, TimeUnit.MILLISECONDS);
+          if (first == null) {
+            continue;
+          }
+          batch.add(first);
+
+          long deadline = System.nanoTime() + maxDelayNanos;
+          while (batch.size() < maxBatchSize) {
+            Request next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (next == null) {
+              break;
+            }
+            batch.add(next);
+          }
+
+          commit(batch);
+          batch.clear();
+        }
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      catch (Throwable t) {
+        failure = t;
+        throw t;
+      }
+      finally {
+        stop(batch, failure);
+      }
+    }
+
+    /**
+     * Fails the requests of the current group and every queued request. Nothing is queued any more once this has set
+     * {@code closed}, so the queue is drained for good.
+     */
+    private void stop(List<Request> batch, Throwable failure) {
+      synchronized (this) {
+        closed = true;
+      }
+      IllegalStateException stopped = new IllegalStateException("Group commit executor stopped", failure);
+      batch.forEach(request -> request.future.completeExceptionally(stopped));
+      for (Request request = queue.poll(); request != null; request = queue.poll()) {
+        request.future.completeExceptionally(stopped);
+      }
+    }
+
+    private void commit(List<Request> batch) {
+      try {
+        try {
+          apply(batch, false);
+        }
+        catch (RuntimeException e) {
+          // Something in the group failed and the whole transaction was rolled back; isolate the requests.
+          batch.forEach(request -> request.error = null);
+          apply(batch, true);
+        }
+      }
+      catch (RuntimeException e) {
+        batch.forEach(request -> request.future.completeExceptionally(e));
+        return;
+      }
+
+      commits.incrementAndGet();
+      for (Request request : batch) {
+        if (request.error == null) {
+          updates.incrementAndGet();
+          request.future.complete(null);
+        }
+        else {
+          request.future.completeExceptionally(request.error);
+        }
+      }
+    }
+
+    private void apply(List<Request> batch, boolean savepoints) {
+      jdbi.useTransaction(h -> {
+        AccountDao dao = h.attach(AccountDao.class);
+        for (Request request : batch) {
+          if (!savepoints) {
+            dao.update(request.account);
+            continue;
+          }
+          h.savepoint("request");
+          try {
+            dao.update(request.account);
+            h.release("request");
+          }
+          catch (RuntimeException e) {
+            h.rollbackToSavepoint("request");
+            request.error = e;
+          }
+        }
+      });
+    }
+
+    private static class Request {
+      final Account account;
+      final CompletableFuture<Void> future = new CompletableFuture<>();
+      Exception error;
+
+      Request(Account account) {
+        this.account = account;
+      }
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package org.jdbi.examples.v3;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.joda.money.CurrencyUnit.USD;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.v3.Example05SqlObjectApi.Account;
+import org.jdbi.examples.v3.Example05SqlObjectApi.AccountDao;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.joda.money.Money;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example09Sharding {
+  private static final int ACCOUNTS = 1000;
+
+  @Rule
+  public DataSourceRule shard0 = new DataSourceRule("shard0");
+
+  @Rule
+  public DataSourceRule shard1 = new DataSourceRule("shard1");
+
+  @Rule
+  public DataSourceRule shard2 = new DataSourceRule("shard2");
+
+  @Rule
+  public DataSourceRule shard3 = new DataSourceRule("shard3");
+
+  @Test
+  public void test() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Jdbi> jdbis = Stream.of(shard0, shard1, shard2, shard3)
+          .map(DataSourceRule::getDataSource)
+          .map(dataSource -> Jdbi.create(dataSource).installPlugin(new SqlObjectPlugin()))
+          .collect(toList());
+
+      ShardedAccountDao dao = new ShardedAccountDao(jdbis, executor);
+      dao.createTable();
+
+      Money tenDollars = Money.of(USD, 10);
+      Money fiveDollars = Money.of(USD, 5);
+
+      dao.insert(new Account(1, "Alice", tenDollars));
+      dao.insert(new Account(2, "Bob", fiveDollars));
+      for (int id = 3; id <= ACCOUNTS; id++) {
+        dao.insert(new Account(id, "Account " + id, fiveDollars));
+      }
+
+      assertThat(dao.getById(2))
+          .extracting(Account::getId, Account::getName, Account::getBalance)
+          .containsExactly(2, "Bob", fiveDollars);
+
+      dao.update(new Account(2, "Robert", tenDollars));
+
+      assertThat(dao.getById(2))
+          .extracting(Account::getId, Account::getName, Account::getBalance)
+          .containsExactly(2, "Robert", tenDollars);
+
+      // Scatter-gather returns one list in id order, exactly as a single database would.
+      List<Account> accounts = dao.list();
+      assertThat(accounts)
+          .extracting(Account::getId)
+          .containsExactlyElementsOf(IntStream.rangeClosed(1, ACCOUNTS).boxed().collect(toList()));
+      assertThat(accounts.subList(0, 2))
+          .extracting(Account::getId, Account::getName, Account::getBalance)
+          .containsExactly(tuple(1, "Alice", tenDollars),
+                           tuple(2, "Robert", tenDollars));
+
+      // Each shard carries a roughly even share of the rows, so per-shard work shrinks as shards are added.
+      for (Jdbi jdbi : jdbis) {
+        int rows = jdbi.withHandle(h -> h.createQuery("select count(*) from accounts").mapTo(int.class).findOnly());
+        assertThat(rows).isBetween(ACCOUNTS / 4 - ACCOUNTS / 10, ACCOUNTS / 4 + ACCOUNTS / 10);
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * An {@link AccountDao} spread over several databases. Single-account operations go to the shard chosen by hashing
+   * the account id; {@link #list()} queries every shard in parallel and merges the sorted partial results.
+   */
+  public static class ShardedAccountDao implements AccountDao {
+    private static final Comparator<ShardCursor> BY_HEAD_ID = Comparator.comparingInt(cursor -> cursor.head.getId());
+
+    private final List<AccountDao> shards;
+    private final ExecutorService executor;
+
+    public ShardedAccountDao(List<Jdbi> shards, ExecutorService executor) {
+      this.shards = shards.stream().map(jdbi -> jdbi.onDemand(AccountDao.class)).collect(toList());
+      this.executor = executor;
+    }
+
+    public AccountDao shardFor(int id) {
+      // Fibonacci hashing: multiply by 2^32 / phi and keep the high bits of the 32-bit product, which sequential ids
+      // spread evenly; the low bits would not. Scaling by the shard count takes as many high bits as a shift of
+      // 32 - log2(n) would for n a power of two, and works for any n.
+      long hash = (id * 0x9E3779B9) & 0xFFFFFFFFL;
+      return shards.get((int) ((hash * shards.size()) >>> 32));
+    }
+
+    @Override
+    public void createTable() {
+      shards.forEach(AccountDao::createTable);
+    }
+
+    @Override
+    public void insert(Account account) {
+      shardFor(account.getId()).insert(account);
+    }
+
+    @Override
+    public void update(Account account) {
+      shardFor(account.getId()).update(account);
+    }
+
+    @Override
+    public Account getById(int id) {
+      return shardFor(id).getById(id);
+    }
+
+    @Override
+    public List<Account> list() {
+      List<CompletableFuture<List<Account>>> partials = shards.stream()
+          .map(shard -> CompletableFuture.supplyAsync(shard::list, executor))
+          .collect(toList());
+
+      // k-way merge: every partial result is already ordered by id
+      PriorityQueue<ShardCursor> heads = new PriorityQueue<>(shards.size(), BY_HEAD_ID);
+      int total = 0;
+      for (CompletableFuture<List<Account>> partial : partials) {
+        List<Account> accounts = partial.join();
+        total += accounts.size();
+        ShardCursor cursor = new ShardCursor(accounts.iterator());
+        if (cursor.advance()) {
+          heads.add(cursor);
+        }
+      }
+
+      List<Account> merged = new ArrayList<>(total);
+      while (!heads.isEmpty()) {
+        ShardCursor cursor = heads.poll();
+        merged.add(cursor.head);
+        if (cursor.advance()) {
+          heads.add(cursor);
+        }
+      }
+      return merged;
+    }
+
+    private static class ShardCursor {
+      final Iterator<Account> rest;
+      Account head;
+
+      ShardCursor(Iterator<Account> rest) {
+        this.rest = rest;
+      }
+
+      boolean advance() {
+        head = rest.hasNext() ? rest.next() : null;
+        return head != null;
+      }
+    }
+  }
+}
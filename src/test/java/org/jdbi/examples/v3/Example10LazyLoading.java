@@ -0,0 +1,161 @@
+package org.jdbi.examples.v3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.MOBILE;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.WORK;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.v3.Example06Joins.Contact;
+import org.jdbi.examples.v3.Example06Joins.ContactDao;
+import org.jdbi.examples.v3.Example06Joins.Phone;
+import org.jdbi.examples.v3.Example06Joins.PhoneType;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example10LazyLoading {
+  private static final int CONTACTS = 50;
+
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  @Test
+  public void test() throws Exception {
+    Jdbi jdbi = Jdbi.create(ds.getDataSource());
+    jdbi.installPlugin(new SqlObjectPlugin());
+
+    AtomicInteger queries = new AtomicInteger();
+    jdbi.setTimingCollector((elapsed, ctx) -> queries.incrementAndGet());
+
+    jdbi.useExtension(ContactDao.class, dao -> {
+      dao.createContactTable();
+      dao.createPhoneTable();
+      for (int id = 0; id < CONTACTS; id++) {
+        dao.insertFullContact(Contact.create(id, String.format("Contact %02d", id),
+                                             new Phone(id * 2, WORK, "800-555-" + id),
+                                             new Phone(id * 2 + 1, MOBILE, "801-555-" + id)));
+      }
+    });
+
+    LazyContactLoader loader = new LazyContactLoader(jdbi, 10);
+
+    queries.set(0);
+    List<Contact> contacts = loader.listContacts();
+    assertThat(contacts)
+        .hasSize(CONTACTS)
+        .extracting(Contact::getId)
+        .startsWith(0, 1, 2);
+    assertThat(queries.get()).isEqualTo(1);
+
+    // A listing screen which only reads names never touches the phones table.
+    contacts.forEach(Contact::getName);
+    assertThat(queries.get()).isEqualTo(1);
+
+    // The first access loads phones for the whole batch of ten in one query...
+    assertThat(contacts.get(3).getPhones())
+        .extracting(Phone::getId, Phone::getType, Phone::getPhone)
+        .containsExactly(tuple(6, WORK, "800-555-3"),
+                         tuple(7, MOBILE, "801-555-3"));
+    assertThat(queries.get()).isEqualTo(2);
+
+    // ...so its siblings are already loaded.
+    for (int i = 0; i < 10; i++) {
+      assertThat(contacts.get(i).getPhones()).hasSize(2);
+    }
+    assertThat(queries.get()).isEqualTo(2);
+
+    // Other batches load independently, still one query each instead of one per contact.
+    assertThat(contacts.get(45).getPhones())
+        .extracting(Phone::getId)
+        .containsExactly(90, 91);
+    assertThat(queries.get()).isEqualTo(3);
+  }
+
+  /**
+   * Lists contacts without their phones. Each returned contact belongs to a batch of up to {@code batchSize}
+   * siblings; the first call to {@link Contact#getPhones()} on any of them loads phones for the whole batch with one
+   * query. Loading opens its own handle, so contacts remain usable after the listing handle has closed.
+   */
+  public static class LazyContactLoader {
+    private final Jdbi jdbi;
+    private final int batchSize;
+
+    public LazyContactLoader(Jdbi jdbi, int batchSize) {
+      this.jdbi = jdbi;
+      this.batchSize = batchSize;
+    }
+
+    public List<Contact> listContacts() {
+      List<Contact> contacts = new ArrayList<>();
+      jdbi.useHandle(h -> {
+        PhoneBatch batch = null;
+        for (LazyContact contact : h.createQuery("select id, name from contacts order by name")
+            .map((r, ctx) -> new LazyContact(r.getInt("id"), r.getString("name")))) {
+          if (batch == null || batch.contacts.size() == batchSize) {
+            batch = new PhoneBatch(jdbi);
+          }
+          batch.add(contact);
+          contacts.add(contact);
+        }
+      });
+      return contacts;
+    }
+  }
+
+  static class PhoneBatch {
+    private final Jdbi jdbi;
+    private final Map<Integer, LazyContact> contacts = new LinkedHashMap<>();
+    private boolean loaded;
+
+    PhoneBatch(Jdbi jdbi) {
+      this.jdbi = jdbi;
+    }
+
+    void add(LazyContact contact) {
+      contacts.put(contact.getId(), contact);
+      contact.batch = this;
+    }
+
+    synchronized void ensureLoaded() {
+      if (loaded) {
+        return;
+      }
+      jdbi.useHandle(h -> h.createQuery("select id, contactId, type, phone from phones "
+                                            + "where contactId in (<contactIds>) "
+                                            + "order by contactId, id")
+          .bindList("contactIds", new ArrayList<>(contacts.keySet()))
+          .reduceResultSet(null, (nothing, r, ctx) -> {
+            Phone phone = new Phone(r.getInt("id"), PhoneType.valueOf(r.getString("type")), r.getString("phone"));
+            contacts.get(r.getInt("contactId")).loadPhone(phone);
+            return null;
+          }));
+      loaded = true;
+    }
+  }
+
+  static class LazyContact extends Contact {
+    private PhoneBatch batch;
+
+    LazyContact(int id, String name) {
+      super(id, name);
+    }
+
+    @Override
+    public List<Phone> getPhones() {
+      batch.ensureLoaded();
+      return super.getPhones();
+    }
+
+    private void loadPhone(Phone phone) {
+      super.getPhones().add(phone);
+    }
+  }
+}
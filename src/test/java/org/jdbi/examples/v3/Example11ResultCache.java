@@ -0,0 +1,572 @@
+package org.jdbi.examples.v3;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.MOBILE;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.WORK;
+import static org.joda.money.CurrencyUnit.USD;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.h2.api.Trigger;
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.v3.Example05SqlObjectApi.Account;
+import org.jdbi.examples.v3.Example05SqlObjectApi.MoneyArgumentFactory;
+import org.jdbi.examples.v3.Example05SqlObjectApi.MoneyMapper;
+import org.jdbi.examples.v3.Example06Joins.Contact;
+import org.jdbi.examples.v3.Example06Joins.ContactDao;
+import org.jdbi.examples.v3.Example06Joins.Phone;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.config.JdbiConfig;
+import org.jdbi.v3.core.transaction.LocalTransactionHandler;
+import org.jdbi.v3.sqlobject.Handler;
+import org.jdbi.v3.sqlobject.HandlerDecorator;
+import org.jdbi.v3.sqlobject.SqlMethodDecoratingAnnotation;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.jdbi.v3.sqlobject.config.RegisterArgumentFactory;
+import org.jdbi.v3.sqlobject.config.RegisterBeanMapper;
+import org.jdbi.v3.sqlobject.config.RegisterColumnMapper;
+import org.jdbi.v3.sqlobject.customizer.BindBean;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import org.joda.money.Money;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example11ResultCache {
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  @RegisterBeanMapper(Account.class)
+  @RegisterColumnMapper(MoneyMapper.class)
+  @RegisterArgumentFactory(MoneyArgumentFactory.class)
+  public interface CachedAccountDao {
+    @SqlUpdate("create table accounts (id int primary key, name varchar(100), balance decimal)")
+    void createTable();
+
+    @SqlUpdate("insert into accounts (id, name, balance) values (:id, :name, :balance)")
+    @Modifies("accounts")
+    void insert(@BindBean Account accounts);
+
+    @SqlUpdate("update accounts set name = :name, balance = :balance where id = :id")
+    @Modifies("accounts")
+    void update(@BindBean Account accounts);
+
+    @SqlBatch("update accounts set name = :name, balance = :balance where id = :id")
+    @Modifies("accounts")
+    void updateAll(@BindBean List<Account> accounts);
+
+    @SqlQuery("select * from accounts order by id")
+    @Cached("accounts")
+    List<Account> list();
+
+    @SqlQuery("select * from accounts where id = :id")
+    @Cached("accounts")
+    Account getById(int id);
+
+    @SqlQuery("select id from accounts order by id")
+    @Cached("accounts")
+    List<Integer> listIds();
+
+    @SqlQuery("select id from accounts order by id")
+    @Cached("accounts")
+    List<Long> listIdsAsLongs();
+  }
+
+  public interface CachedContactDao extends ContactDao {
+    @Override
+    @Cached({"contacts", "phones"})
+    default List<Contact> listFullContacts() {
+      return ContactDao.super.listFullContacts();
+    }
+  }
+
+  @Test
+  public void test() throws Exception {
+    Jdbi jdbi = Jdbi.create(ds.getDataSource());
+    jdbi.installPlugin(new SqlObjectPlugin());
+    jdbi.setTransactionHandler(new CacheInvalidatingTransactionHandler());
+
+    ResultCache cache = new ResultCache(jdbi.withHandle(h -> TableVersions.forDatabase(h.getConnection())), 100);
+    jdbi.getConfig(ResultCaches.class).setCache(cache);
+
+    AtomicInteger queries = new AtomicInteger();
+    jdbi.setTimingCollector((elapsed, ctx) -> queries.incrementAndGet());
+
+    Money tenDollars = Money.of(USD, 10);
+    Money fiveDollars = Money.of(USD, 5);
+
+    CachedAccountDao accounts = jdbi.onDemand(CachedAccountDao.class);
+    accounts.createTable();
+    accounts.insert(new Account(1, "Alice", tenDollars));
+    accounts.insert(new Account(2, "Bob", fiveDollars));
+
+    queries.set(0);
+    assertThat(accounts.list()).extracting(Account::getName).containsExactly("Alice", "Bob");
+    assertThat(accounts.list()).extracting(Account::getName).containsExactly("Alice", "Bob");
+    assertThat(queries.get()).isEqualTo(1);
+
+    // Bound arguments are part of the key.
+    assertThat(accounts.getById(1).getName()).isEqualTo("Alice");
+    assertThat(accounts.getById(2).getName()).isEqualTo("Bob");
+    assertThat(accounts.getById(2).getName()).isEqualTo("Bob");
+    assertThat(queries.get()).isEqualTo(3);
+
+    // The DAO's own writes bump the table version, which invalidates every cached accounts query.
+    accounts.update(new Account(2, "Robert", tenDollars));
+    assertThat(accounts.list()).extracting(Account::getName).containsExactly("Alice", "Robert");
+    assertThat(accounts.getById(2).getName()).isEqualTo("Robert");
+    assertThat(queries.get()).isEqualTo(6);
+
+    accounts.updateAll(Arrays.asList(new Account(1, "Alicia", tenDollars), new Account(2, "Bobby", tenDollars)));
+    assertThat(accounts.list()).extracting(Account::getName).containsExactly("Alicia", "Bobby");
+    assertThat(queries.get()).isEqualTo(8);
+
+    // Writers outside the DAO are caught by triggers.
+    CachedContactDao contacts = jdbi.onDemand(CachedContactDao.class);
+    contacts.createContactTable();
+    contacts.createPhoneTable();
+    try (Handle h = jdbi.open()) {
+      VersionTrigger.install(h, "contacts");
+      VersionTrigger.install(h, "phones");
+    }
+    contacts.insertFullContact(Contact.create(1, "Alice", new Phone(2, WORK, "800-555-1234")));
+
+    queries.set(0);
+    assertThat(contacts.listFullContacts()).extracting(Contact::getName).containsExactly("Alice");
+    assertThat(contacts.listFullContacts()).extracting(Contact::getName).containsExactly("Alice");
+    assertThat(queries.get()).isEqualTo(1);
+
+    jdbi.useHandle(h -> h.execute("insert into phones (id, contactId, type, phone) values (?, ?, ?, ?)",
+                                  3, 1, "MOBILE", "801-555-1212"));
+    queries.set(0);
+    assertThat(contacts.listFullContacts().get(0).getPhones())
+        .extracting(Phone::getId, Phone::getType)
+        .containsExactly(tuple(2, WORK), tuple(3, MOBILE));
+    assertThat(queries.get()).isEqualTo(1);
+
+    assertThat(cache.getMaxEntries()).isEqualTo(100);
+    assertThat(cache.size()).isEqualTo(4);
+    assertThat(cache.getHits()).isEqualTo(3);
+    assertThat(cache.getMisses()).isEqualTo(8);
+    assertThat(cache.getHitRatio()).isEqualTo(3.0 / 11);
+
+    // Methods with the same SQL but different results don't share entries.
+    assertThat(accounts.listIds()).containsExactly(1, 2);
+    assertThat(accounts.listIdsAsLongs()).containsExactly(1L, 2L);
+
+    // A transaction's reads bypass the cache, so other handles can't hit its uncommitted rows: they query, and wait
+    // for the writer's table lock.
+    try (Handle writer = jdbi.open()) {
+      writer.begin();
+      CachedAccountDao txAccounts = writer.attach(CachedAccountDao.class);
+      txAccounts.update(new Account(1, "Uncommitted", tenDollars));
+      assertThat(txAccounts.getById(1).getName()).isEqualTo("Uncommitted");
+
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+        AtomicReference<Thread> readerThread = new AtomicReference<>();
+        Future<String> reader = executor.submit(() -> {
+          readerThread.set(Thread.currentThread());
+          return accounts.getById(1).getName();
+        });
+        // Give the reader the chance to hit the cache, or else to block on the lock.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (!reader.isDone() && System.nanoTime() < deadline
+            && (readerThread.get() == null || readerThread.get().getState() != Thread.State.TIMED_WAITING)) {
+          Thread.sleep(1);
+        }
+        writer.rollback();
+        assertThat(reader.get()).isEqualTo("Alicia");
+      }
+      finally {
+        executor.shutdown();
+      }
+    }
+
+    // A rolled back write invalidates what was cached during the transaction.
+    Throwable rolledBack = catchThrowable(() -> jdbi.useTransaction(h -> {
+      CachedAccountDao txAccounts = h.attach(CachedAccountDao.class);
+      txAccounts.update(new Account(1, "Uncommitted", tenDollars));
+      assertThat(txAccounts.getById(1).getName()).isEqualTo("Uncommitted");
+      throw new IllegalStateException("roll back");
+    }));
+    assertThat(rolledBack).hasMessage("roll back");
+    assertThat(accounts.getById(1).getName()).isEqualTo("Alicia");
+
+    jdbi.useTransaction(h -> {
+      CachedAccountDao txAccounts = h.attach(CachedAccountDao.class);
+      txAccounts.update(new Account(1, "Alice", tenDollars));
+      assertThat(txAccounts.getById(1).getName()).isEqualTo("Alice");
+    });
+    assertThat(accounts.getById(1).getName()).isEqualTo("Alice");
+  }
+
+  /**
+   * Caches the method's result until one of the named tables changes.
+   */
+  @Retention(RUNTIME)
+  @Target(METHOD)
+  @SqlMethodDecoratingAnnotation(CachedDecorator.class)
+  public @interface Cached {
+    String[] value();
+  }
+
+  /**
+   * Bumps the version of the named tables after the method returns, and again when the transaction it ran in ends.
+   */
+  @Retention(RUNTIME)
+  @Target(METHOD)
+  @SqlMethodDecoratingAnnotation(ModifiesDecorator.class)
+  public @interface Modifies {
+    String[] value();
+  }
+
+  public static class CachedDecorator implements HandlerDecorator {
+    @Override
+    public Handler decorateHandler(Handler base, Class<?> sqlObjectType, Method method) {
+      String[] tables = method.getAnnotation(Cached.class).value();
+
+      return (target, args, handle) -> {
+        ResultCache cache = handle.getConfig(ResultCaches.class).getCache();
+        if (cache == null) {
+          return base.invoke(target, args, handle);
+        }
+        return cache.get(handle.getHandle(), method, args, tables, () -> base.invoke(target, args, handle));
+      };
+    }
+  }
+
+  public static class ModifiesDecorator implements HandlerDecorator {
+    @Override
+    public Handler decorateHandler(Handler base, Class<?> sqlObjectType, Method method) {
+      String[] tables = method.getAnnotation(Modifies.class).value();
+
+      return (target, args, handle) -> {
+        try {
+          return base.invoke(target, args, handle);
+        }
+        finally {
+          ResultCache cache = handle.getConfig(ResultCaches.class).getCache();
+          if (cache != null) {
+            cache.modified(handle.getHandle(), tables);
+          }
+        }
+      };
+    }
+  }
+
+  /**
+   * Tells the result cache when a transaction ends, so that tables written by {@link Modifies} methods in the
+   * transaction are bumped once more after the commit or rollback. Without that, a reader could cache uncommitted or
+   * rolled back rows under the version of the write, which nothing would ever bump again.
+   */
+  public static class CacheInvalidatingTransactionHandler extends LocalTransactionHandler {
+    @Override
+    public void commit(Handle handle) {
+      try {
+        super.commit(handle);
+      }
+      finally {
+        transactionEnded(handle);
+      }
+    }
+
+    @Override
+    public void rollback(Handle handle) {
+      try {
+        super.rollback(handle);
+      }
+      finally {
+        transactionEnded(handle);
+      }
+    }
+
+    private static void transactionEnded(Handle handle) {
+      ResultCache cache = handle.getConfig(ResultCaches.class).getCache();
+      if (cache != null) {
+        cache.transactionEnded(handle);
+      }
+    }
+  }
+
+  /**
+   * Configuration holding the result cache used by {@link Cached} methods. Copies share the same cache.
+   */
+  public static class ResultCaches implements JdbiConfig<ResultCaches> {
+    private ResultCache cache;
+
+    public ResultCaches() {
+    }
+
+    private ResultCaches(ResultCaches that) {
+      this.cache = that.cache;
+    }
+
+    public ResultCache getCache() {
+      return cache;
+    }
+
+    public ResultCaches setCache(ResultCache cache) {
+      this.cache = cache;
+      return this;
+    }
+
+    @Override
+    public ResultCaches createCopy() {
+      return new ResultCaches(this);
+    }
+  }
+
+  /**
+   * Per-table modification counters for one database. Counters only ever increase, so a cached result is current as
+   * long as every table it read from still has the version observed before the query ran.
+   */
+  public static class TableVersions {
+    private static final ConcurrentMap<String, TableVersions> DATABASES = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the versions for the database the connection belongs to. Triggers see an internal connection with a
+     * different URL, so databases are told apart by name.
+     */
+    public static TableVersions forDatabase(Connection conn) throws SQLException {
+      try (Statement stmt = conn.createStatement();
+           ResultSet rs = stmt.executeQuery("call database()")) {
+        rs.next();
+        return DATABASES.computeIfAbsent(rs.getString(1), name -> new TableVersions());
+      }
+    }
+
+    public long[] snapshot(String[] tables) {
+      long[] snapshot = new long[tables.length];
+      for (int i = 0; i < tables.length; i++) {
+        snapshot[i] = counter(tables[i]).get();
+      }
+      return snapshot;
+    }
+
+    public void bump(String... tables) {
+      for (String table : tables) {
+        counter(table).incrementAndGet();
+      }
+    }
+
+    private AtomicLong counter(String table) {
+      return versions.computeIfAbsent(table.toLowerCase(), t -> new AtomicLong());
+    }
+  }
+
+  /**
+   * Bumps the table version on every insert, update or delete statement, whoever issued it. Triggers fire before the
+   * writer commits, so this is only safe with H2's default table-level locking: a reader that sees the new version
+   * blocks on the writer's lock until it commits or rolls back, and so never caches uncommitted rows. That takes
+   * readers that query; {@link ResultCache#get} keeps handles in a transaction out of the cache, so that uncommitted
+   * rows never get there for others to hit. {@link #init} refuses to run under MVCC, where readers would not block.
+   */
+  public static class VersionTrigger implements Trigger {
+    private TableVersions versions;
+    private String table;
+
+    public static void install(Handle h, String table) {
+      h.execute("create trigger " + table + "_version after insert, update, delete on " + table
+                    + " call \"" + VersionTrigger.class.getName() + "\"");
+    }
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before, int type)
+        throws SQLException {
+      try (Statement stmt = conn.createStatement();
+           ResultSet rs = stmt.executeQuery("select value from information_schema.settings where name = 'MVCC'")) {
+        if (rs.next() && Boolean.parseBoolean(rs.getString(1))) {
+          throw new SQLException("VersionTrigger needs table-level locking; it cannot be used with MVCC");
+        }
+      }
+      this.versions = TableVersions.forDatabase(conn);
+      this.table = tableName;
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) {
+      versions.bump(table);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void remove() {
+    }
+  }
+
+  /**
+   * A bounded, least-recently-used cache of query results keyed by SqlObject method and bound arguments. Entries
+   * remember the versions of the tables they were read from and are discarded on lookup once any of those tables has
+   * changed. Cached results are shared between callers, so they must not be modified.
+   *
+   * <p>The bound is a number of entries, not of bytes: a handful of large lists can take far more memory than many
+   * single rows, so size it for the largest results the cached methods return.
+   */
+  public static class ResultCache {
+    private final TableVersions versions;
+    private final int maxEntries;
+    private final Map<Key, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final ConcurrentMap<Handle, Set<String>> uncommitted = new ConcurrentHashMap<>();
+
+    public ResultCache(TableVersions versions, int maxEntries) {
+      this.versions = versions;
+      this.maxEntries = maxEntries;
+      this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+          return size() > ResultCache.this.maxEntries;
+        }
+      };
+    }
+
+    public TableVersions getVersions() {
+      return versions;
+    }
+
+    /**
+     * The most entries the cache holds, whatever their size.
+     */
+    public int getMaxEntries() {
+      return maxEntries;
+    }
+
+    public synchronized int size() {
+      return entries.size();
+    }
+
+    public long getHits() {
+      return hits.get();
+    }
+
+    public long getMisses() {
+      return misses.get();
+    }
+
+    public double getHitRatio() {
+      long hits = this.hits.get();
+      long total = hits + misses.get();
+      return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Bumps the given tables now and, if the handle is in a transaction, remembers them to be bumped again once it ends.
+     */
+    void modified(Handle handle, String[] tables) {
+      versions.bump(tables);
+      if (handle.isInTransaction()) {
+        uncommitted.computeIfAbsent(handle, h -> ConcurrentHashMap.newKeySet()).addAll(Arrays.asList(tables));
+      }
+    }
+
+    void transactionEnded(Handle handle) {
+      Set<String> tables = uncommitted.remove(handle);
+      if (tables != null) {
+        versions.bump(tables.toArray(new String[0]));
+      }
+    }
+
+    /**
+     * Returns the cached result of the method for the arguments, loading it if there is no current one. Handles in a
+     * transaction neither read nor fill the cache: they would see their own uncommitted writes, and anything they
+     * cached would reach other handles without them ever taking the table locks that keep them from reading those
+     * writes.
+     */
+    Object get(Handle handle, Method method, Object[] args, String[] tables, Loader loader) throws Exception {
+      if (handle.isInTransaction()) {
+        return loader.load();
+      }
+
+      Key key = new Key(method, args);
+      // Read the versions before querying, so a concurrent write can only make the entry look older than it is.
+      long[] current = versions.snapshot(tables);
+
+      synchronized (this) {
+        Entry entry = entries.get(key);
+        if (entry != null && Arrays.equals(entry.versions, current)) {
+          hits.incrementAndGet();
+          return entry.value;
+        }
+      }
+
+      misses.incrementAndGet();
+      Object value = loader.load();
+      synchronized (this) {
+        entries.put(key, new Entry(current, value));
+      }
+      return value;
+    }
+
+    @FunctionalInterface
+    interface Loader {
+      Object load() throws Exception;
+    }
+
+    private static class Key {
+      private final Method method;
+      private final Object[] args;
+
+      Key(Method method, Object[] args) {
+        this.method = method;
+        this.args = args == null ? new Object[0] : args.clone();
+      }
+
+      @Override
+      public boolean equals(Object o) {
+        if (!(o instanceof Key)) {
+          return false;
+        }
+        Key that = (Key) o;
+        return method.equals(that.method) && Arrays.deepEquals(args, that.args);
+      }
+
+      @Override
+      public int hashCode() {
+        return 31 * method.hashCode() + Arrays.deepHashCode(args);
+      }
+    }
+
+    private static class Entry {
+      final long[] versions;
+      final Object value;
+
+      Entry(long[] versions, Object value) {
+        this.versions = versions;
+        this.value = value;
+      }
+    }
+  }
+}
@@ -0,0 +1,252 @@
+package org.jdbi.examples.v3;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.joda.money.CurrencyUnit.USD;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.v3.Example05SqlObjectApi.Account;
+import org.jdbi.examples.v3.Example05SqlObjectApi.AccountDao;
+import org.jdbi.examples.v3.Example05SqlObjectApi.MoneyArgumentFactory;
+import org.jdbi.examples.v3.Example05SqlObjectApi.MoneyMapper;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.mapper.reflect.BeanMapper;
+import org.jdbi.v3.core.statement.PreparedBatch;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example12OffHeapRows {
+  private static final int ROWS = 10_000;
+
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  @Test
+  public void test() throws Exception {
+    Jdbi jdbi = Jdbi.create(ds.getDataSource());
+    jdbi.installPlugin(new SqlObjectPlugin());
+    jdbi.registerRowMapper(BeanMapper.factory(Account.class));
+    jdbi.registerColumnMapper(new MoneyMapper());
+    jdbi.registerArgument(new MoneyArgumentFactory());
+
+    jdbi.useExtension(AccountDao.class, AccountDao::createTable);
+    jdbi.useHandle(h -> {
+      PreparedBatch batch = h.prepareBatch("insert into accounts (id, name, balance) values (:id, :name, :balance)");
+      for (int id = 0; id < ROWS; id++) {
+        batch.bind("id", id)
+            .bind("name", "Account " + id)
+            .bindByType("balance", Money.ofMinor(USD, id * 101L), Money.class)
+            .add();
+      }
+      batch.execute();
+      h.execute("update accounts set name = null where id = 1");
+    });
+
+    AccountArena arena = jdbi.withHandle(h -> h.createQuery("select * from accounts order by id")
+        .mapTo(Account.class)
+        .collect(AccountArena.collector(USD)));
+
+    assertThat(arena.size()).isEqualTo(ROWS);
+    assertThat(arena.offHeapBytes())
+        .isGreaterThan((long) ROWS * AccountArena.SLOT_SIZE)
+        .isLessThan((long) ROWS * (AccountArena.SLOT_SIZE + "Account 9999".length()));
+
+    AccountView alice = arena.get(1234);
+    assertThat(alice.getId()).isEqualTo(1234);
+    assertThat(alice.getName()).isEqualTo("Account 1234");
+    assertThat(alice.getBalanceMinor()).isEqualTo(1234 * 101L);
+    assertThat(alice.getBalance()).isEqualTo(Money.ofMinor(USD, 1234 * 101L));
+
+    assertThat(arena.get(1).getName()).isNull();
+
+    // forEach repositions a single flyweight instead of allocating a view per row.
+    List<AccountView> seen = new ArrayList<>();
+    long[] total = {0};
+    arena.forEach(view -> {
+      if (seen.isEmpty() || seen.get(0) != view) {
+        seen.add(view);
+      }
+      total[0] += view.getBalanceMinor();
+    });
+    assertThat(seen).hasSize(1);
+    assertThat(total[0]).isEqualTo(101L * ROWS * (ROWS - 1) / 2);
+
+    // Past 1 GiB a buffer can no longer double, so it grows to the most it can hold and then refuses to grow.
+    assertThat(AccountArena.grownCapacity(1024, 1025)).isEqualTo(2048);
+    assertThat(AccountArena.grownCapacity(1024, 4096)).isEqualTo(4096);
+    assertThat(AccountArena.grownCapacity((1 << 30) + 1, (1L << 30) + 2)).isEqualTo(Integer.MAX_VALUE);
+    assertThatThrownBy(() -> AccountArena.grownCapacity(Integer.MAX_VALUE, Integer.MAX_VALUE + 1L))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  /**
+   * Stores accounts outside the Java heap, so millions of rows add nothing for the garbage collector to trace.
+   *
+   * <p>Each row takes a fixed-width slot in one direct buffer: the {@code int} id, the balance in minor units as a
+   * {@code long}, and the offset and length of the UTF-8 encoded name in a second direct buffer. Both buffers double
+   * in size as rows are added, up to the 2 GiB a buffer can hold; once either is full, {@link #add(Account)} throws
+   * {@link IllegalStateException}. All balances must be in the arena's currency.
+   */
+  public static class AccountArena {
+    static final int SLOT_SIZE = 20;
+
+    private static final int ID = 0;
+    private static final int BALANCE = 4;
+    private static final int NAME_OFFSET = 12;
+    private static final int NAME_LENGTH = 16;
+
+    private static final long NULL_BALANCE = Long.MIN_VALUE;
+    private static final int NULL_NAME = -1;
+
+    private final CurrencyUnit currency;
+    private ByteBuffer slots;
+    private ByteBuffer strings;
+    private int size;
+
+    public AccountArena(CurrencyUnit currency, int initialRows) {
+      this.currency = currency;
+      this.slots = ByteBuffer.allocateDirect(initialRows * SLOT_SIZE);
+      this.strings = ByteBuffer.allocateDirect(initialRows * 16);
+    }
+
+    public static Collector<Account, ?, AccountArena> collector(CurrencyUnit currency) {
+      return Collector.of(() -> new AccountArena(currency, 1024),
+                          AccountArena::add,
+                          AccountArena::addAll);
+    }
+
+    public void add(Account account) {
+      slots = ensureCapacity(slots, SLOT_SIZE);
+      int slot = size * SLOT_SIZE;
+
+      slots.putInt(slot + ID, account.getId());
+
+      Money balance = account.getBalance();
+      if (balance != null && !balance.getCurrencyUnit().equals(currency)) {
+        throw new IllegalArgumentException("Expected a balance in " + currency + " but got " + balance);
+      }
+      slots.putLong(slot + BALANCE, balance == null ? NULL_BALANCE : balance.getAmountMinorLong());
+
+      String name = account.getName();
+      if (name == null) {
+        slots.putInt(slot + NAME_OFFSET, 0);
+        slots.putInt(slot + NAME_LENGTH, NULL_NAME);
+      }
+      else {
+        byte[] bytes = name.getBytes(UTF_8);
+        strings = ensureCapacity(strings, bytes.length);
+        slots.putInt(slot + NAME_OFFSET, strings.position());
+        slots.putInt(slot + NAME_LENGTH, bytes.length);
+        strings.put(bytes);
+      }
+
+      size++;
+      slots.position(size * SLOT_SIZE);
+    }
+
+    public AccountArena addAll(AccountArena that) {
+      that.forEach(view -> add(new Account(view.getId(), view.getName(), view.getBalance())));
+      return this;
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public long offHeapBytes() {
+      return (long) size * SLOT_SIZE + strings.position();
+    }
+
+    public AccountView get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      return new AccountView(this, index);
+    }
+
+    /**
+     * Visits every row through one reusable view. Views passed to the consumer must not be retained.
+     */
+    public void forEach(Consumer<AccountView> consumer) {
+      AccountView view = new AccountView(this, 0);
+      for (int i = 0; i < size; i++) {
+        view.index = i;
+        consumer.accept(view);
+      }
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int needed) {
+      if (buffer.remaining() >= needed) {
+        return buffer;
+      }
+      ByteBuffer grown = ByteBuffer.allocateDirect(grownCapacity(buffer.capacity(), (long) buffer.position() + needed));
+      buffer.flip();
+      grown.put(buffer);
+      return grown;
+    }
+
+    /**
+     * Twice the current capacity, or more if that is not enough, but no more than a buffer can hold.
+     */
+    static int grownCapacity(int capacity, long required) {
+      if (required > Integer.MAX_VALUE) {
+        throw new IllegalStateException("Arena is full: a buffer holds at most " + Integer.MAX_VALUE + " bytes, but "
+                                            + required + " are needed");
+      }
+      return (int) Math.min(Integer.MAX_VALUE, Math.max(2L * capacity, required));
+    }
+  }
+
+  /**
+   * A flyweight over one row of an {@link AccountArena}. Fields are decoded on each call, so only the values actually
+   * read are ever materialized on the heap.
+   */
+  public static class AccountView {
+    private final AccountArena arena;
+    private int index;
+
+    AccountView(AccountArena arena, int index) {
+      this.arena = arena;
+      this.index = index;
+    }
+
+    public int getId() {
+      return arena.slots.getInt(slot() + AccountArena.ID);
+    }
+
+    public String getName() {
+      int length = arena.slots.getInt(slot() + AccountArena.NAME_LENGTH);
+      if (length == AccountArena.NULL_NAME) {
+        return null;
+      }
+      byte[] bytes = new byte[length];
+      ByteBuffer strings = arena.strings.duplicate();
+      strings.position(arena.slots.getInt(slot() + AccountArena.NAME_OFFSET));
+      strings.get(bytes);
+      return new String(bytes, UTF_8);
+    }
+
+    public long getBalanceMinor() {
+      return arena.slots.getLong(slot() + AccountArena.BALANCE);
+    }
+
+    public Money getBalance() {
+      long minor = getBalanceMinor();
+      return minor == AccountArena.NULL_BALANCE ? null : Money.ofMinor(arena.currency, minor);
+    }
+
+    private int slot() {
+      return index * AccountArena.SLOT_SIZE;
+    }
+  }
+}
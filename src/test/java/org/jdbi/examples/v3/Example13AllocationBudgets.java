@@ -0,0 +1,168 @@
+package org.jdbi.examples.v3;
+
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.MOBILE;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.WORK;
+import static org.joda.money.CurrencyUnit.USD;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.assertj.core.api.SoftAssertions;
+import org.h2.tools.SimpleResultSet;
+import org.jdbi.examples.rule.Allocations;
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.v3.Example02RowMapper.ContactMapper;
+import org.jdbi.examples.v3.Example03RegisterRowMapper;
+import org.jdbi.examples.v3.Example04ColumnMapper;
+import org.jdbi.examples.v3.Example05SqlObjectApi.Account;
+import org.jdbi.examples.v3.Example05SqlObjectApi.MoneyArgumentFactory;
+import org.jdbi.examples.v3.Example05SqlObjectApi.MoneyMapper;
+import org.jdbi.examples.v3.Example06Joins.Contact;
+import org.jdbi.examples.v3.Example06Joins.ContactDao;
+import org.jdbi.examples.v3.Example06Joins.Phone;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.argument.Argument;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.mapper.reflect.BeanMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.joda.money.Money;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example13AllocationBudgets {
+  private static final int ROWS = 10_000;
+
+  /**
+   * Bytes allocated per mapped row (or per bound argument), set about 1.5x above what the current code allocates on
+   * HotSpot. Raise a budget only together with the change that needs it, so the increase shows up in review.
+   */
+  private static final Map<String, Long> BUDGETS = new LinkedHashMap<>();
+
+  static {
+    BUDGETS.put("Example02RowMapper.ContactMapper", 40L);
+    BUDGETS.put("Example03RegisterRowMapper.ContactMapper", 40L);
+    BUDGETS.put("Example04ColumnMapper.MoneyMapper", 64L);
+    BUDGETS.put("Example04ColumnMapper.MoneyArgumentFactory", 448L);
+    BUDGETS.put("Example05SqlObjectApi.MoneyMapper", 64L);
+    BUDGETS.put("BeanMapper<Example05SqlObjectApi.Account>", 576L);
+    BUDGETS.put("Example05SqlObjectApi.MoneyArgumentFactory", 448L);
+    BUDGETS.put("Example06Joins.ContactDao.listFullContacts", 640L);
+  }
+
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  @Test
+  public void test() throws Exception {
+    Jdbi jdbi = Jdbi.create(ds.getDataSource());
+    jdbi.installPlugin(new SqlObjectPlugin());
+    jdbi.registerColumnMapper(new MoneyMapper());
+
+    Map<String, Long> actual = new LinkedHashMap<>();
+
+    SimpleResultSet contacts = new SimpleResultSet();
+    contacts.setAutoClose(false);
+    contacts.addColumn("id", Types.INTEGER, 10, 0);
+    contacts.addColumn("name", Types.VARCHAR, 100, 0);
+    SimpleResultSet accounts = new SimpleResultSet();
+    accounts.setAutoClose(false);
+    accounts.addColumn("id", Types.INTEGER, 10, 0);
+    accounts.addColumn("name", Types.VARCHAR, 100, 0);
+    accounts.addColumn("balance", Types.DECIMAL, 20, 2);
+    for (int id = 0; id < ROWS; id++) {
+      contacts.addRow(id, "Contact " + id);
+      accounts.addRow(id, "Account " + id, BigDecimal.valueOf(id, 2));
+    }
+
+    try (Handle h = jdbi.open()) {
+      StatementContext ctx = h.createQuery("select 1").getContext();
+
+      ContactMapper contactMapper = new ContactMapper();
+      actual.put("Example02RowMapper.ContactMapper", Allocations.bytesPerOperation(ROWS, () -> {
+        contacts.beforeFirst();
+        while (contacts.next()) {
+          contactMapper.map(contacts, ctx);
+        }
+      }));
+
+      Example03RegisterRowMapper.ContactMapper namedContactMapper = new Example03RegisterRowMapper.ContactMapper();
+      actual.put("Example03RegisterRowMapper.ContactMapper", Allocations.bytesPerOperation(ROWS, () -> {
+        contacts.beforeFirst();
+        while (contacts.next()) {
+          namedContactMapper.map(contacts, ctx);
+        }
+      }));
+
+      MoneyMapper moneyMapper = new MoneyMapper();
+      actual.put("Example05SqlObjectApi.MoneyMapper", Allocations.bytesPerOperation(ROWS, () -> {
+        accounts.beforeFirst();
+        while (accounts.next()) {
+          moneyMapper.map(accounts, 3, ctx);
+        }
+      }));
+
+      Example04ColumnMapper.MoneyMapper columnMoneyMapper = new Example04ColumnMapper.MoneyMapper();
+      actual.put("Example04ColumnMapper.MoneyMapper", Allocations.bytesPerOperation(ROWS, () -> {
+        accounts.beforeFirst();
+        while (accounts.next()) {
+          columnMoneyMapper.map(accounts, 3, ctx);
+        }
+      }));
+
+      RowMapper<Account> beanMapper = BeanMapper.of(Account.class).specialize(accounts, ctx);
+      actual.put("BeanMapper<Example05SqlObjectApi.Account>", Allocations.bytesPerOperation(ROWS, () -> {
+        accounts.beforeFirst();
+        while (accounts.next()) {
+          beanMapper.map(accounts, ctx);
+        }
+      }));
+
+      MoneyArgumentFactory argumentFactory = new MoneyArgumentFactory();
+      Money[] balances = new Money[ROWS];
+      for (int i = 0; i < ROWS; i++) {
+        balances[i] = Money.ofMinor(USD, i);
+      }
+      try (PreparedStatement stmt = h.getConnection().prepareStatement("select ?")) {
+        actual.put("Example05SqlObjectApi.MoneyArgumentFactory", Allocations.bytesPerOperation(ROWS, () -> {
+          for (Money balance : balances) {
+            Argument argument = argumentFactory.build(Money.class, balance, h.getConfig()).get();
+            argument.apply(1, stmt, ctx);
+          }
+        }));
+
+        Example04ColumnMapper.MoneyArgumentFactory columnArgumentFactory =
+            new Example04ColumnMapper.MoneyArgumentFactory();
+        actual.put("Example04ColumnMapper.MoneyArgumentFactory", Allocations.bytesPerOperation(ROWS, () -> {
+          for (Money balance : balances) {
+            Argument argument = columnArgumentFactory.build(Money.class, balance, h.getConfig()).get();
+            argument.apply(1, stmt, ctx);
+          }
+        }));
+      }
+    }
+
+    jdbi.useExtension(ContactDao.class, dao -> {
+      dao.createContactTable();
+      dao.createPhoneTable();
+      for (int id = 0; id < ROWS / 2; id++) {
+        dao.insertFullContact(Contact.create(id, "Contact " + id,
+                                             new Phone(id * 2, WORK, "800-555-" + id),
+                                             new Phone(id * 2 + 1, MOBILE, "801-555-" + id)));
+      }
+      actual.put("Example06Joins.ContactDao.listFullContacts",
+                 Allocations.bytesPerOperation(ROWS, dao::listFullContacts));
+    });
+
+    SoftAssertions softly = new SoftAssertions();
+    BUDGETS.forEach((name, budget) ->
+        softly.assertThat(actual.get(name))
+            .as("bytes allocated per row by %s", name)
+            .isLessThanOrEqualTo(budget));
+    softly.assertAll();
+  }
+}
@@ -0,0 +1,282 @@
+package org.jdbi.examples.v3;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.MOBILE;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.WORK;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.v3.Example06Joins.Contact;
+import org.jdbi.examples.v3.Example06Joins.ContactDao;
+import org.jdbi.examples.v3.Example06Joins.Phone;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.config.JdbiConfig;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.mapper.reflect.ConstructorMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example14CachedConstructorMappers {
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  public interface CachedMapperContactDao extends ContactDao {
+    @Override
+    default Contact getFullContactById(int id) {
+      ConstructorMappers mappers = getHandle().getConfig(ConstructorMappers.class);
+      return getHandle().createQuery("select contacts.id c_id, name c_name, "
+                                         + "phones.id p_id, type p_type, phones.phone p_phone "
+                                         + "from contacts left join phones on contacts.id = phones.contactId "
+                                         + "where contacts.id = :id")
+          .bind("id", id)
+          .registerRowMapper(Contact.class, mappers.get(Contact.class, "c_"))
+          .registerRowMapper(Phone.class, mappers.get(Phone.class, "p_"))
+          .reduceRows(null, (contact, rowView) -> {
+            if (contact == null) {
+              contact = rowView.getRow(Contact.class);
+            }
+
+            if (rowView.getColumn("p_id", Integer.class) != null) {
+              contact.addPhone(rowView.getRow(Phone.class));
+            }
+
+            return contact;
+          });
+    }
+
+    @Override
+    default List<Contact> listFullContacts() {
+      ConstructorMappers mappers = getHandle().getConfig(ConstructorMappers.class);
+      return getHandle().createQuery("select c.id c_id, c.name c_name, "
+                                         + "p.id p_id, p.type p_type, p.phone p_phone "
+                                         + "from contacts c left join phones p on c.id = p.contactId "
+                                         + "order by c.name")
+          .registerRowMapper(Contact.class, mappers.get(Contact.class, "c_"))
+          .registerRowMapper(Phone.class, mappers.get(Phone.class, "p_"))
+          .reduceRows(new LinkedHashMap<Integer, Contact>(), (map, rowView) -> {
+            Contact contact = map.computeIfAbsent(rowView.getColumn("c_id", Integer.class),
+                                                  id -> rowView.getRow(Contact.class));
+
+            if (rowView.getColumn("p_id", Integer.class) != null) {
+              contact.addPhone(rowView.getRow(Phone.class));
+            }
+
+            return map;
+          })
+          .values()
+          .stream()
+          .collect(toList());
+    }
+  }
+
+  @Test
+  public void test() throws Exception {
+    Jdbi jdbi = Jdbi.create(ds.getDataSource());
+    jdbi.installPlugin(new SqlObjectPlugin());
+
+    // Create the registry on the Jdbi itself, so every handle shares it rather than creating its own.
+    ConstructorMappers mappers = jdbi.getConfig(ConstructorMappers.class);
+
+    jdbi.useExtension(CachedMapperContactDao.class, dao -> {
+      dao.createContactTable();
+      dao.createPhoneTable();
+
+      dao.insertFullContact(Contact.create(1, "Alice",
+                                           new Phone(2, WORK, "800-555-1234"),
+                                           new Phone(3, MOBILE, "801-555-1212")));
+
+      dao.insertFullContact(Contact.create(4, "Bob"));
+
+      queryContacts(dao, 5);
+    });
+    jdbi.useExtension(CachedMapperContactDao.class, dao -> queryContacts(dao, 5));
+
+    // Both queries return the same column layout, so each mapper was specialized exactly once for all 20 queries,
+    // on both handles.
+    assertThat(mappers.size()).isEqualTo(2);
+    assertThat(mappers.getSpecializations()).isEqualTo(2);
+
+    // Mapping rows without specializing first looks up the layout once per result set, not once per row.
+    RowMapper<Contact> contactMapper = mappers.get(Contact.class, "c_");
+    List<String> names = jdbi.withHandle(h -> h.createQuery("select id c_id, name c_name from contacts order by id")
+        .reduceResultSet(new ArrayList<>(), (list, rs, ctx) -> {
+          list.add(contactMapper.map(rs, ctx).getName());
+          return list;
+        }));
+    assertThat(names).containsExactly("Alice", "Bob");
+    assertThat(mappers.getSpecializations()).isEqualTo(3);
+  }
+
+  private static void queryContacts(CachedMapperContactDao dao, int times) {
+    for (int i = 0; i < times; i++) {
+      Contact alice = dao.getFullContactById(1);
+      assertThat(alice)
+          .extracting(Contact::getId, Contact::getName)
+          .containsExactly(1, "Alice");
+      assertThat(alice.getPhones())
+          .extracting(Phone::getId, Phone::getType, Phone::getPhone)
+          .containsExactly(tuple(2, WORK, "800-555-1234"),
+                           tuple(3, MOBILE, "801-555-1212"));
+
+      List<Contact> fullContacts = dao.listFullContacts();
+      assertThat(fullContacts)
+          .extracting(Contact::getId, Contact::getName)
+          .containsExactly(tuple(1, "Alice"),
+                           tuple(4, "Bob"));
+      assertThat(fullContacts.get(1).getPhones())
+          .isEmpty();
+    }
+  }
+
+  /**
+   * A registry of prefixed {@link ConstructorMapper}s, shared by a Jdbi and every handle and statement configured from
+   * it. Constructor discovery happens once per type and prefix, and column matching once per result set column layout.
+   *
+   * <p>Get the registry from the Jdbi before opening handles; handles copy their configuration from the Jdbi and
+   * would otherwise each start with an empty registry.
+   *
+   * <p>Specialized mappers capture the column mappers found in the configuration that first saw a layout, so column
+   * mappers must not be overridden per handle or statement for types mapped through this registry.
+   */
+  public static class ConstructorMappers implements JdbiConfig<ConstructorMappers> {
+    private final ConcurrentMap<MapperKey, CachingRowMapper<?>> mappers;
+    private final AtomicInteger specializations;
+
+    public ConstructorMappers() {
+      this.mappers = new ConcurrentHashMap<>();
+      this.specializations = new AtomicInteger();
+    }
+
+    private ConstructorMappers(ConstructorMappers that) {
+      this.mappers = that.mappers;
+      this.specializations = that.specializations;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> RowMapper<T> get(Class<T> type, String prefix) {
+      return (RowMapper<T>) mappers.computeIfAbsent(new MapperKey(type, prefix),
+                                                    key -> new CachingRowMapper<>(ConstructorMapper.of(type, prefix),
+                                                                                  specializations));
+    }
+
+    public int size() {
+      return mappers.size();
+    }
+
+    public int getSpecializations() {
+      return specializations.get();
+    }
+
+    @Override
+    public ConstructorMappers createCopy() {
+      return new ConstructorMappers(this);
+    }
+  }
+
+  private static class MapperKey {
+    private final Class<?> type;
+    private final String prefix;
+
+    MapperKey(Class<?> type, String prefix) {
+      this.type = type;
+      this.prefix = prefix;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof MapperKey)) {
+        return false;
+      }
+      MapperKey that = (MapperKey) o;
+      return type.equals(that.type) && prefix.equals(that.prefix);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(type, prefix);
+    }
+  }
+
+  /**
+   * Specializes the delegate once per column layout, remembering up to {@link #MAX_LAYOUTS} of them; further layouts
+   * are specialized for every result set, as if uncached. Jdbi specializes a row mapper once per result set; rows
+   * mapped without specializing first reuse the mapper of the result set mapped last.
+   */
+  private static class CachingRowMapper<T> implements RowMapper<T> {
+    private static final int MAX_LAYOUTS = 64;
+
+    private final RowMapper<T> delegate;
+    private final AtomicInteger specializations;
+    private final ConcurrentMap<List<String>, RowMapper<T>> byLayout = new ConcurrentHashMap<>();
+    private volatile Specialized<T> last;
+
+    CachingRowMapper(RowMapper<T> delegate, AtomicInteger specializations) {
+      this.delegate = delegate;
+      this.specializations = specializations;
+    }
+
+    @Override
+    public T map(ResultSet rs, StatementContext ctx) throws SQLException {
+      Specialized<T> specialized = last;
+      if (specialized == null || specialized.rs != rs) {
+        specialized = new Specialized<>(rs, specialize(rs, ctx));
+        last = specialized;
+      }
+      return specialized.mapper.map(rs, ctx);
+    }
+
+    @Override
+    public RowMapper<T> specialize(ResultSet rs, StatementContext ctx) throws SQLException {
+      List<String> layout = columnLabels(rs);
+      RowMapper<T> specialized = byLayout.get(layout);
+      if (specialized == null) {
+        specialized = delegate.specialize(rs, ctx);
+        if (byLayout.size() >= MAX_LAYOUTS) {
+          return specialized;
+        }
+        RowMapper<T> raced = byLayout.putIfAbsent(layout, specialized);
+        if (raced == null) {
+          specializations.incrementAndGet();
+        }
+        else {
+          specialized = raced;
+        }
+      }
+      return specialized;
+    }
+
+    private static List<String> columnLabels(ResultSet rs) throws SQLException {
+      ResultSetMetaData metadata = rs.getMetaData();
+      int columns = metadata.getColumnCount();
+      List<String> labels = new ArrayList<>(columns);
+      for (int i = 1; i <= columns; i++) {
+        labels.add(metadata.getColumnLabel(i));
+      }
+      return labels;
+    }
+
+    private static class Specialized<T> {
+      final ResultSet rs;
+      final RowMapper<T> mapper;
+
+      Specialized(ResultSet rs, RowMapper<T> mapper) {
+        this.rs = rs;
+        this.mapper = mapper;
+      }
+    }
+  }
+}
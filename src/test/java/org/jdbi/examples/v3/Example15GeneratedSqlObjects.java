@@ -0,0 +1,194 @@
+package org.jdbi.examples.v3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.MOBILE;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.WORK;
+import static org.joda.money.CurrencyUnit.USD;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jdbi.examples.generator.GenerateSqlObject;
+import org.jdbi.examples.generator.GeneratedSqlObjectPlugin;
+import org.jdbi.examples.rule.Allocations;
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.v3.Example05SqlObjectApi.Account;
+import org.jdbi.examples.v3.Example05SqlObjectApi.AccountDao;
+import org.jdbi.examples.v3.Example06Joins.Contact;
+import org.jdbi.examples.v3.Example06Joins.ContactDao;
+import org.jdbi.examples.v3.Example06Joins.Phone;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.HandlerDecorators;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import org.joda.money.Money;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example15GeneratedSqlObjects {
+  private static final int CALLS = 1_000;
+
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  @GenerateSqlObject
+  public interface NicknameDao {
+    @SqlUpdate("create table nicknames (id int primary key, nickname varchar(100))")
+    void createTable();
+
+    @SqlBatch("insert into nicknames (id, nickname) values (:id, :nickname)")
+    void insertAll(@Bind("id") List<Integer> ids, @Bind("nickname") List<String> nicknames);
+
+    @SqlQuery("select nickname from nicknames order by id")
+    List<String> list();
+  }
+
+  @Test
+  public void test() throws Exception {
+    Jdbi jdbi = Jdbi.create(ds.getDataSource());
+    jdbi.installPlugin(new GeneratedSqlObjectPlugin());
+
+    jdbi.useExtension(AccountDao.class, dao -> {
+      assertThat(dao).isInstanceOf(Example05SqlObjectApi_AccountDaoImpl.class);
+
+      Money tenDollars = Money.of(USD, 10);
+      Money fiveDollars = Money.of(USD, 5);
+
+      dao.createTable();
+      dao.insert(new Account(1, "Alice", tenDollars));
+      dao.insert(new Account(2, "Bob", fiveDollars));
+
+      assertThat(dao.list())
+          .extracting(Account::getId, Account::getName, Account::getBalance)
+          .containsExactly(tuple(1, "Alice", tenDollars),
+                           tuple(2, "Bob", fiveDollars));
+
+      dao.update(new Account(2, "Robert", tenDollars));
+
+      assertThat(dao.getById(2))
+          .extracting(Account::getId, Account::getName, Account::getBalance)
+          .containsExactly(2, "Robert", tenDollars);
+      assertThat(dao.getById(3)).isNull();
+    });
+
+    // Default methods are inherited by the generated class, and getHandle() comes from the HandleSupplier.
+    jdbi.useExtension(ContactDao.class, dao -> {
+      assertThat(dao).isInstanceOf(Example06Joins_ContactDaoImpl.class);
+
+      dao.createContactTable();
+      dao.createPhoneTable();
+
+      dao.insertFullContact(Contact.create(1, "Alice",
+                                           new Phone(2, WORK, "800-555-1234"),
+                                           new Phone(3, MOBILE, "801-555-1212")));
+      dao.insertFullContact(Contact.create(4, "Bob"));
+
+      List<Contact> fullContacts = dao.listFullContacts();
+      assertThat(fullContacts)
+          .extracting(Contact::getId, Contact::getName)
+          .containsExactly(tuple(1, "Alice"),
+                           tuple(4, "Bob"));
+      assertThat(fullContacts.get(0).getPhones())
+          .extracting(Phone::getId, Phone::getType, Phone::getPhone)
+          .containsExactly(tuple(2, WORK, "800-555-1234"),
+                           tuple(3, MOBILE, "801-555-1212"));
+    });
+
+    // Batches over several iterables take one element of each per row, and need them all to be the same length.
+    jdbi.useExtension(NicknameDao.class, dao -> {
+      dao.createTable();
+      dao.insertAll(Arrays.asList(1, 2), Arrays.asList("Al", "Bobby"));
+      assertThat(dao.list()).containsExactly("Al", "Bobby");
+      assertThatThrownBy(() -> dao.insertAll(Arrays.asList(3, 4), Collections.singletonList("Cat")))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessageContaining("same number of elements");
+      assertThatThrownBy(() -> dao.insertAll(Collections.singletonList(3), Arrays.asList("Cat", "Dot")))
+          .isInstanceOf(IllegalArgumentException.class);
+      assertThat(dao.list()).containsExactly("Al", "Bobby");
+    });
+
+    // On-demand objects open a handle per call and attach the generated class to it.
+    AccountDao onDemand = jdbi.onDemand(AccountDao.class);
+    assertThat(onDemand.getById(1).getName()).isEqualTo("Alice");
+
+    // Registered handler decorators still apply; the generated object is then wrapped in a proxy.
+    Jdbi decorated = Jdbi.create(ds.getDataSource());
+    decorated.installPlugin(new GeneratedSqlObjectPlugin());
+    AtomicInteger queries = new AtomicInteger();
+    AtomicInteger decorations = new AtomicInteger();
+    decorated.getConfig(HandlerDecorators.class).register((handler, sqlObjectType, method) -> {
+      decorations.incrementAndGet();
+      return method.isAnnotationPresent(SqlQuery.class)
+          ? (target, args, handle) -> {
+            queries.incrementAndGet();
+            return handler.invoke(target, args, handle);
+          }
+          : handler;
+    });
+    decorated.useExtension(AccountDao.class, dao -> {
+      assertThat(Proxy.isProxyClass(dao.getClass())).isTrue();
+      assertThat(dao.getById(1).getName()).isEqualTo("Alice");
+      assertThat(dao.list()).hasSize(2);
+    });
+    assertThat(queries.get()).isEqualTo(2);
+
+    // Decorators run once per interface, not on every attach, even though each on-demand call attaches anew.
+    int decorationsPerAttach = decorations.get();
+    AccountDao decoratedOnDemand = decorated.onDemand(AccountDao.class);
+    for (int i = 0; i < 10; i++) {
+      assertThat(decoratedOnDemand.getById(1).getName()).isEqualTo("Alice");
+    }
+    assertThat(queries.get()).isEqualTo(12);
+    assertThat(decorations.get()).isEqualTo(decorationsPerAttach);
+
+    // A decorator registered on a handle applies to what is attached to that handle.
+    AtomicInteger handleQueries = new AtomicInteger();
+    decorated.useHandle(h -> {
+      h.getConfig(HandlerDecorators.class).register((handler, sqlObjectType, method) ->
+          method.isAnnotationPresent(SqlQuery.class)
+              ? (target, args, handle) -> {
+                handleQueries.incrementAndGet();
+                return handler.invoke(target, args, handle);
+              }
+              : handler);
+      assertThat(h.attach(AccountDao.class).getById(1).getName()).isEqualTo("Alice");
+    });
+    assertThat(handleQueries.get()).isEqualTo(1);
+    assertThat(queries.get()).isEqualTo(13);
+
+    // Per-call overhead against the proxy path, over the same database and the same statement.
+    Jdbi proxied = Jdbi.create(ds.getDataSource());
+    proxied.installPlugin(new SqlObjectPlugin());
+
+    long generatedBytes;
+    long proxiedBytes;
+    try (Handle h = jdbi.open()) {
+      AccountDao dao = h.attach(AccountDao.class);
+      generatedBytes = Allocations.bytesPerOperation(CALLS, () -> getByIdRepeatedly(dao));
+    }
+    try (Handle h = proxied.open()) {
+      AccountDao dao = h.attach(AccountDao.class);
+      assertThat(Proxy.isProxyClass(dao.getClass())).isTrue();
+      proxiedBytes = Allocations.bytesPerOperation(CALLS, () -> getByIdRepeatedly(dao));
+    }
+
+    assertThat(generatedBytes)
+        .as("bytes allocated per call by the generated AccountDao (proxy: %d)", proxiedBytes)
+        .isLessThan(proxiedBytes);
+  }
+
+  private static void getByIdRepeatedly(AccountDao dao) {
+    for (int i = 0; i < CALLS; i++) {
+      dao.getById(1);
+    }
+  }
+}
@@ -0,0 +1,236 @@
+package org.jdbi.examples.v3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.joda.money.CurrencyUnit.USD;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jdbi.examples.rule.Allocations;
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.v3.Example05SqlObjectApi.Account;
+import org.jdbi.examples.v3.Example05SqlObjectApi.AccountDao;
+import org.jdbi.examples.v3.Example06Joins.Contact;
+import org.jdbi.examples.v3.Example06Joins.ContactDao;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.config.ConfigRegistry;
+import org.jdbi.v3.core.rewriter.StatementRewriter;
+import org.jdbi.v3.core.statement.Binding;
+import org.jdbi.v3.core.statement.Query;
+import org.jdbi.v3.core.statement.SqlStatements;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.jdbi.v3.sqlobject.SqlObjects;
+import org.jdbi.v3.sqlobject.config.ConfiguringAnnotation;
+import org.jdbi.v3.sqlobject.config.Configurer;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import org.joda.money.Money;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example16SqlObjectWarmup {
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  @Test
+  public void test() throws Exception {
+    Jdbi setup = Jdbi.create(ds.getDataSource());
+    setup.installPlugin(new SqlObjectPlugin());
+    setup.useExtension(AccountDao.class, dao -> {
+      dao.createTable();
+      dao.insert(new Account(1, "Alice", Money.of(USD, 10)));
+    });
+    setup.useExtension(ContactDao.class, dao -> {
+      dao.createContactTable();
+      dao.createPhoneTable();
+      dao.insertFullContact(Contact.create(1, "Alice"));
+    });
+
+    // Make the same calls once beforehand, so JVM-wide costs (class loading, bean introspection) are already paid and
+    // the difference below is only what the warm-up saves in the Jdbi's own caches.
+    firstCalls(setup);
+
+    Jdbi cold = Jdbi.create(ds.getDataSource());
+    cold.installPlugin(new SqlObjectPlugin());
+    long coldFirstCall = Allocations.bytesAllocated(() -> firstCalls(cold));
+
+    Jdbi warm = Jdbi.create(ds.getDataSource());
+    warm.installPlugin(new SqlObjectPlugin());
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    WarmupReport report;
+    try {
+      report = new SqlObjectWarmup(warm).warm(executor, AccountDao.class, ContactDao.class);
+    }
+    finally {
+      executor.shutdown();
+    }
+
+    assertThat(report.getSqlObjects()).isEqualTo(2);
+    // AccountDao: createTable, insert, update, list, getById. ContactDao: two creates, insertContact, insertPhones.
+    assertThat(report.getStatements()).isEqualTo(9);
+    assertThat(report.getElapsedNanos()).isPositive();
+
+    long warmFirstCall = Allocations.bytesAllocated(() -> firstCalls(warm));
+    assertThat(warmFirstCall)
+        .as("bytes allocated by the first calls after warming up in %d us (cold: %d)",
+            report.getElapsedNanos() / 1000, coldFirstCall)
+        .isLessThan(coldFirstCall);
+  }
+
+  private static void firstCalls(Jdbi jdbi) {
+    jdbi.useExtension(AccountDao.class, dao -> assertThat(dao.getById(1).getName()).isEqualTo("Alice"));
+    jdbi.useExtension(ContactDao.class, dao -> assertThat(dao.listFullContacts()).hasSize(1));
+  }
+
+  /**
+   * Pays the first-call costs of SqlObject interfaces ahead of time, typically while an application starts and before
+   * it reports itself ready.
+   *
+   * <p>For each interface, this attaches it once, which builds and caches the method handlers in the Jdbi's
+   * SqlObject factory, and parses the SQL of every statement method into the Jdbi's statement rewriter cache, with the
+   * interface's configuring annotations applied as they would be for a real call. Nothing is executed against the
+   * database.
+   *
+   * <p>Row mappers and arguments are not warmed: every call resolves them in its own copy of the configuration, which
+   * also holds the mappers registered by the interface's annotations, and those copies are thrown away after the call.
+   * Resolving them here would only fill copies no real call ever sees.
+   */
+  public static class SqlObjectWarmup {
+    private final Jdbi jdbi;
+
+    public SqlObjectWarmup(Jdbi jdbi) {
+      this.jdbi = jdbi;
+    }
+
+    public WarmupReport warm(Class<?>... sqlObjectTypes) {
+      long start = System.nanoTime();
+      WarmupReport report = new WarmupReport();
+      for (Class<?> sqlObjectType : sqlObjectTypes) {
+        report = report.plus(warmOne(sqlObjectType));
+      }
+      return report.withElapsedNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * Warms each interface on its own handle in the given executor, and waits for all of them.
+     */
+    public WarmupReport warm(ExecutorService executor, Class<?>... sqlObjectTypes) {
+      long start = System.nanoTime();
+      List<CompletableFuture<WarmupReport>> futures = new ArrayList<>();
+      for (Class<?> sqlObjectType : sqlObjectTypes) {
+        futures.add(CompletableFuture.supplyAsync(() -> warmOne(sqlObjectType), executor));
+      }
+      WarmupReport report = new WarmupReport();
+      for (CompletableFuture<WarmupReport> future : futures) {
+        report = report.plus(future.join());
+      }
+      return report.withElapsedNanos(System.nanoTime() - start);
+    }
+
+    private WarmupReport warmOne(Class<?> sqlObjectType) {
+      return jdbi.withHandle(h -> {
+        h.attach(sqlObjectType);
+
+        ConfigRegistry typeConfig = h.getConfig().createCopy();
+        forEachConfigurer(sqlObjectType, (configurer, annotation) ->
+            configurer.configureForType(typeConfig, annotation, sqlObjectType));
+
+        int statements = 0;
+        for (Method method : sqlObjectType.getMethods()) {
+          if (!isStatementMethod(method)) {
+            continue;
+          }
+          ConfigRegistry config = typeConfig.createCopy();
+          forEachConfigurer(method, (configurer, annotation) ->
+              configurer.configureForMethod(config, annotation, sqlObjectType, method));
+
+          parse(h, config, config.get(SqlObjects.class).getSqlLocator().locate(sqlObjectType, method));
+          statements++;
+        }
+        return new WarmupReport(1, statements, 0);
+      });
+    }
+
+    private static boolean isStatementMethod(Method method) {
+      return method.isAnnotationPresent(SqlQuery.class)
+          || method.isAnnotationPresent(SqlUpdate.class)
+          || method.isAnnotationPresent(SqlBatch.class);
+    }
+
+    private static void parse(Handle h, ConfigRegistry config, String sql) {
+      StatementRewriter rewriter = config.get(SqlStatements.class).getStatementRewriter();
+      try (Query query = h.createQuery(sql)) {
+        rewriter.rewrite(sql, new Binding(), query.getContext());
+      }
+    }
+
+    private static void forEachConfigurer(AnnotatedElement element, ConfigurerConsumer consumer) {
+      for (Annotation annotation : element.getAnnotations()) {
+        ConfiguringAnnotation configuring = annotation.annotationType().getAnnotation(ConfiguringAnnotation.class);
+        if (configuring != null) {
+          try {
+            consumer.accept(configuring.value().newInstance(), annotation);
+          }
+          catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalStateException("Unable to instantiate " + configuring.value(), e);
+          }
+        }
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface ConfigurerConsumer {
+    void accept(Configurer configurer, Annotation annotation);
+  }
+
+  /**
+   * What a warm-up resolved, and how long it took.
+   */
+  public static class WarmupReport {
+    private final int sqlObjects;
+    private final int statements;
+    private final long elapsedNanos;
+
+    WarmupReport() {
+      this(0, 0, 0);
+    }
+
+    WarmupReport(int sqlObjects, int statements, long elapsedNanos) {
+      this.sqlObjects = sqlObjects;
+      this.statements = statements;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    WarmupReport plus(WarmupReport that) {
+      return new WarmupReport(sqlObjects + that.sqlObjects,
+                              statements + that.statements,
+                              elapsedNanos + that.elapsedNanos);
+    }
+
+    WarmupReport withElapsedNanos(long elapsedNanos) {
+      return new WarmupReport(sqlObjects, statements, elapsedNanos);
+    }
+
+    public int getSqlObjects() {
+      return sqlObjects;
+    }
+
+    public int getStatements() {
+      return statements;
+    }
+
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+  }
+}
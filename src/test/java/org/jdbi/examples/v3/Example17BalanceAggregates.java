@@ -0,0 +1,222 @@
+package org.jdbi.examples.v3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.joda.money.CurrencyUnit.USD;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jdbi.examples.rule.Allocations;
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.v3.Example05SqlObjectApi.Account;
+import org.jdbi.examples.v3.Example05SqlObjectApi.AccountDao;
+import org.jdbi.examples.v3.Example05SqlObjectApi.MoneyArgumentFactory;
+import org.jdbi.examples.v3.Example05SqlObjectApi.MoneyMapper;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.PreparedBatch;
+import org.jdbi.v3.core.statement.StatementContext;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.jdbi.v3.sqlobject.config.RegisterArgumentFactory;
+import org.jdbi.v3.sqlobject.config.RegisterBeanMapper;
+import org.jdbi.v3.sqlobject.config.RegisterColumnMapper;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.UseRowMapper;
+import org.joda.money.Money;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example17BalanceAggregates {
+  private static final int ACCOUNTS = 100_000;
+
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  /**
+   * Aggregates over account balances, computed by the database and returned in minor units (cents, like
+   * {@link MoneyMapper}, balances are in USD). Each query returns one row per result, and each row maps to at most one
+   * object without going through {@code BigDecimal} or {@link Money}.
+   */
+  @RegisterBeanMapper(Account.class)
+  @RegisterColumnMapper(MoneyMapper.class)
+  @RegisterArgumentFactory(MoneyArgumentFactory.class)
+  public interface AccountReportDao extends AccountDao {
+    @SqlQuery("select cast(coalesce(sum(balance), 0) * 100 as bigint) from accounts")
+    long totalMinor();
+
+    default Money total() {
+      return Money.ofMinor(USD, totalMinor());
+    }
+
+    /**
+     * Counts accounts per balance bucket of {@code widthMinor} cents, in bucket order. Empty buckets and accounts
+     * without a balance are left out.
+     */
+    @SqlQuery("select bucket * :widthMinor lower_minor, count(*) accounts "
+        + "from (select cast(floor(balance * 100 / :widthMinor) as bigint) bucket "
+        + "      from accounts "
+        + "      where balance is not null) buckets "
+        + "group by bucket "
+        + "order by bucket")
+    @UseRowMapper(BalanceBucketMapper.class)
+    List<BalanceBucket> histogram(long widthMinor);
+
+    /**
+     * Returns the {@code limit} largest balances, ties broken by id.
+     */
+    @SqlQuery("select id, cast(balance * 100 as bigint) balance_minor "
+        + "from accounts "
+        + "where balance is not null "
+        + "order by balance desc, id "
+        + "limit :limit")
+    @UseRowMapper(AccountBalanceMapper.class)
+    List<AccountBalance> top(int limit);
+  }
+
+  @Test
+  public void test() throws Exception {
+    Jdbi jdbi = Jdbi.create(ds.getDataSource());
+    jdbi.installPlugin(new SqlObjectPlugin());
+    jdbi.registerArgument(new MoneyArgumentFactory());
+
+    jdbi.useExtension(AccountReportDao.class, dao -> {
+      dao.createTable();
+      assertThat(dao.totalMinor()).isZero();
+      assertThat(dao.histogram(100)).isEmpty();
+    });
+
+    // Balances from $0.00 to $9.99, repeating, so every one-dollar bucket holds exactly a tenth of the accounts.
+    jdbi.useHandle(h -> {
+      PreparedBatch batch = h.prepareBatch("insert into accounts (id, name, balance) values (:id, :name, :balance)");
+      for (int id = 0; id < ACCOUNTS; id++) {
+        batch.bind("id", id)
+            .bind("name", "Account " + id)
+            .bindByType("balance", Money.ofMinor(USD, id % 1000), Money.class)
+            .add();
+      }
+      batch.execute();
+    });
+
+    jdbi.useExtension(AccountReportDao.class, dao -> {
+      long expectedTotal = (long) (ACCOUNTS / 1000) * (999 * 1000 / 2);
+      assertThat(dao.totalMinor()).isEqualTo(expectedTotal);
+      assertThat(dao.total()).isEqualTo(Money.ofMinor(USD, expectedTotal));
+
+      List<BalanceBucket> histogram = dao.histogram(100);
+      assertThat(histogram).hasSize(10);
+      assertThat(histogram)
+          .extracting(BalanceBucket::getLowerMinor, BalanceBucket::getAccounts)
+          .startsWith(tuple(0L, (long) ACCOUNTS / 10),
+                      tuple(100L, (long) ACCOUNTS / 10));
+
+      assertThat(dao.top(3))
+          .extracting(AccountBalance::getId, AccountBalance::getBalanceMinor)
+          .containsExactly(tuple(999, 999L),
+                           tuple(1999, 999L),
+                           tuple(2999, 999L));
+
+      // The same reports computed the old way, by fetching every account.
+      assertThat(totalInJava(dao.list())).isEqualTo(dao.total());
+      assertThat(histogramInJava(dao.list(), 100))
+          .isEqualTo(histogramAsMap(histogram));
+
+      // H2 runs embedded, so its own scanning, grouping and sorting allocates on this thread too and is counted
+      // against the database side. Against a server only the 21 result rows would reach this JVM.
+      long inDatabase = Allocations.bytesAllocated(() -> {
+        dao.totalMinor();
+        dao.histogram(100);
+        dao.top(10);
+      });
+      long inJava = Allocations.bytesAllocated(() -> {
+        List<Account> accounts = dao.list();
+        totalInJava(accounts);
+        histogramInJava(accounts, 100);
+        accounts.stream()
+            .sorted(Comparator.comparing(Account::getBalance).reversed().thenComparing(Account::getId))
+            .limit(10)
+            .toArray();
+      });
+      assertThat(inDatabase)
+          .as("bytes allocated computing the reports in the database (in Java: %d)", inJava)
+          .isLessThan(inJava / 2);
+    });
+  }
+
+  private static Money totalInJava(List<Account> accounts) {
+    Money total = Money.zero(USD);
+    for (Account account : accounts) {
+      total = total.plus(account.getBalance());
+    }
+    return total;
+  }
+
+  private static Map<Long, Long> histogramInJava(List<Account> accounts, long widthMinor) {
+    Map<Long, Long> histogram = new TreeMap<>();
+    for (Account account : accounts) {
+      long lowerMinor = Math.floorDiv(account.getBalance().getAmountMinorLong(), widthMinor) * widthMinor;
+      histogram.merge(lowerMinor, 1L, Long::sum);
+    }
+    return histogram;
+  }
+
+  private static Map<Long, Long> histogramAsMap(List<BalanceBucket> histogram) {
+    Map<Long, Long> map = new TreeMap<>();
+    histogram.forEach(bucket -> map.put(bucket.getLowerMinor(), bucket.getAccounts()));
+    return map;
+  }
+
+  public static class BalanceBucket {
+    private final long lowerMinor;
+    private final long accounts;
+
+    public BalanceBucket(long lowerMinor, long accounts) {
+      this.lowerMinor = lowerMinor;
+      this.accounts = accounts;
+    }
+
+    public long getLowerMinor() {
+      return lowerMinor;
+    }
+
+    public long getAccounts() {
+      return accounts;
+    }
+  }
+
+  public static class BalanceBucketMapper implements RowMapper<BalanceBucket> {
+    @Override
+    public BalanceBucket map(ResultSet rs, StatementContext ctx) throws SQLException {
+      return new BalanceBucket(rs.getLong("lower_minor"), rs.getLong("accounts"));
+    }
+  }
+
+  public static class AccountBalance {
+    private final int id;
+    private final long balanceMinor;
+
+    public AccountBalance(int id, long balanceMinor) {
+      this.id = id;
+      this.balanceMinor = balanceMinor;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public long getBalanceMinor() {
+      return balanceMinor;
+    }
+  }
+
+  public static class AccountBalanceMapper implements RowMapper<AccountBalance> {
+    @Override
+    public AccountBalance map(ResultSet rs, StatementContext ctx) throws SQLException {
+      return new AccountBalance(rs.getInt("id"), rs.getLong("balance_minor"));
+    }
+  }
+}
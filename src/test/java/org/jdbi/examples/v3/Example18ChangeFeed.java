@@ -0,0 +1,269 @@
+package org.jdbi.examples.v3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.joda.money.CurrencyUnit.USD;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.h2.api.Trigger;
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.v3.Example05SqlObjectApi.Account;
+import org.jdbi.examples.v3.Example05SqlObjectApi.AccountDao;
+import org.jdbi.examples.v3.Example05SqlObjectApi.MoneyArgumentFactory;
+import org.jdbi.examples.v3.Example05SqlObjectApi.MoneyMapper;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.PreparedBatch;
+import org.jdbi.v3.sqlobject.SqlObject;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.jdbi.v3.sqlobject.config.RegisterArgumentFactory;
+import org.jdbi.v3.sqlobject.config.RegisterBeanMapper;
+import org.jdbi.v3.sqlobject.config.RegisterColumnMapper;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.joda.money.Money;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example18ChangeFeed {
+  private static final int ACCOUNTS = 10_000;
+
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  @RegisterBeanMapper(VersionedAccount.class)
+  @RegisterColumnMapper(MoneyMapper.class)
+  @RegisterArgumentFactory(MoneyArgumentFactory.class)
+  public interface AccountChangeDao extends AccountDao, SqlObject {
+    /**
+     * Adds an indexed {@code version} column to {@code accounts}, numbers the existing rows, and installs a trigger
+     * that gives every inserted or updated row the next value of a sequence. Writers need no changes.
+     */
+    default void enableChangeTracking() {
+      Handle h = getHandle();
+      h.execute("create sequence account_versions");
+      h.execute("alter table accounts add column version bigint");
+      h.execute("update accounts set version = next value for account_versions");
+      h.execute("create index accounts_version on accounts (version)");
+      AccountVersionTrigger.install(h);
+    }
+
+    /**
+     * Returns up to {@code limit} rows inserted or updated after version {@code since}, in version order. The index on
+     * the version column makes this a range scan, so its cost grows with the number of changes, not with the table.
+     */
+    @SqlQuery("select * from accounts where version > :since order by version limit :limit")
+    List<VersionedAccount> changedSince(long since, int limit);
+  }
+
+  @Test
+  public void test() throws Exception {
+    Jdbi jdbi = Jdbi.create(ds.getDataSource());
+    jdbi.installPlugin(new SqlObjectPlugin());
+    jdbi.registerArgument(new MoneyArgumentFactory());
+
+    AtomicInteger queries = new AtomicInteger();
+    jdbi.setTimingCollector((elapsed, ctx) -> queries.incrementAndGet());
+
+    jdbi.useExtension(AccountChangeDao.class, AccountDao::createTable);
+    jdbi.useHandle(h -> {
+      PreparedBatch batch = h.prepareBatch("insert into accounts (id, name, balance) values (:id, :name, :balance)");
+      for (int id = 0; id < ACCOUNTS; id++) {
+        batch.bind("id", id)
+            .bind("name", "Account " + id)
+            .bindByType("balance", Money.ofMinor(USD, id), Money.class)
+            .add();
+      }
+      batch.execute();
+    });
+    jdbi.useExtension(AccountChangeDao.class, AccountChangeDao::enableChangeTracking);
+
+    AccountChangeFeed feed = new AccountChangeFeed(jdbi, 1000);
+
+    // A downstream cache starts from watermark 0, which reads the whole table once.
+    Map<Integer, Account> cache = new HashMap<>();
+    long watermark = sync(feed, 0, cache);
+    assertThat(cache).hasSize(ACCOUNTS);
+
+    // Afterwards it only reads what changed, with one query regardless of table size.
+    Money tenDollars = Money.of(USD, 10);
+    jdbi.useExtension(AccountChangeDao.class, dao -> {
+      dao.update(new Account(1, "Alice", tenDollars));
+      dao.update(new Account(2, "Bob", tenDollars));
+      dao.update(new Account(1, "Alice Smith", tenDollars));
+      dao.insert(new Account(ACCOUNTS, "Carol", tenDollars));
+    });
+
+    queries.set(0);
+    Iterator<ChangeBatch> changes = feed.since(watermark);
+    ChangeBatch batch = changes.next();
+    assertThat(batch.getChanges())
+        .extracting(Account::getId, Account::getName)
+        .containsExactly(tuple(2, "Bob"),
+                         tuple(1, "Alice Smith"),
+                         tuple(ACCOUNTS, "Carol"));
+    assertThat(changes.hasNext()).isFalse();
+    assertThat(queries.get()).isEqualTo(1);
+
+    // A consumer that stops after any batch resumes from the watermark it stored, without gaps or repeats.
+    AccountChangeFeed smallBatches = new AccountChangeFeed(jdbi, 2);
+    ChangeBatch first = smallBatches.since(watermark).next();
+    assertThat(first.getChanges()).extracting(Account::getId).containsExactly(2, 1);
+
+    Iterator<ChangeBatch> resumed = smallBatches.since(first.getWatermark());
+    assertThat(resumed.next().getChanges()).extracting(Account::getId).containsExactly(ACCOUNTS);
+    assertThat(resumed.hasNext()).isFalse();
+
+    long synced = sync(feed, watermark, cache);
+    assertThat(synced).isEqualTo(batch.getWatermark());
+    assertThat(cache).hasSize(ACCOUNTS + 1);
+    assertThat(cache.get(1).getName()).isEqualTo("Alice Smith");
+
+    // Nothing changed since, so the next sync is a single empty query.
+    queries.set(0);
+    assertThat(sync(feed, synced, cache)).isEqualTo(synced);
+    assertThat(queries.get()).isEqualTo(1);
+  }
+
+  private static long sync(AccountChangeFeed feed, long watermark, Map<Integer, Account> cache) {
+    Iterator<ChangeBatch> batches = feed.since(watermark);
+    while (batches.hasNext()) {
+      ChangeBatch batch = batches.next();
+      batch.getChanges().forEach(account -> cache.put(account.getId(), account));
+      watermark = batch.getWatermark();
+    }
+    return watermark;
+  }
+
+  /**
+   * Reads changed accounts in bounded batches. Each batch runs on its own short-lived handle, so no connection is
+   * held between batches, and carries the watermark to persist once it has been applied.
+   *
+   * <p>Versions are assigned when a row is written but become visible when the transaction commits. H2 1.3 locks
+   * the whole table for writes, so commits happen in version order and the feed never skips a row. On a database with
+   * row-level locking, lag the stored watermark behind the oldest open write transaction instead. Deleted rows are not
+   * reported; use soft deletes if downstream needs to see them.
+   */
+  public static class AccountChangeFeed {
+    private final Jdbi jdbi;
+    private final int batchSize;
+
+    public AccountChangeFeed(Jdbi jdbi, int batchSize) {
+      this.jdbi = jdbi;
+      this.batchSize = batchSize;
+    }
+
+    public ChangeBatch poll(long watermark) {
+      List<VersionedAccount> changes = jdbi.withExtension(AccountChangeDao.class,
+                                                          dao -> dao.changedSince(watermark, batchSize));
+      return new ChangeBatch(changes, changes.isEmpty() ? watermark : changes.get(changes.size() - 1).getVersion());
+    }
+
+    /**
+     * Returns the batches of changes after {@code watermark}, fetched lazily. Iteration ends after the first batch
+     * that is not full, so the last batch may be empty.
+     */
+    public Iterator<ChangeBatch> since(long watermark) {
+      return new Iterator<ChangeBatch>() {
+        private ChangeBatch last;
+
+        @Override
+        public boolean hasNext() {
+          return last == null || last.getChanges().size() == batchSize;
+        }
+
+        @Override
+        public ChangeBatch next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          last = poll(last == null ? watermark : last.getWatermark());
+          return last;
+        }
+      };
+    }
+  }
+
+  public static class ChangeBatch {
+    private final List<VersionedAccount> changes;
+    private final long watermark;
+
+    ChangeBatch(List<VersionedAccount> changes, long watermark) {
+      this.changes = changes;
+      this.watermark = watermark;
+    }
+
+    public List<VersionedAccount> getChanges() {
+      return changes;
+    }
+
+    /**
+     * The version of the last change in this batch, or the requested watermark if the batch is empty.
+     */
+    public long getWatermark() {
+      return watermark;
+    }
+  }
+
+  public static class VersionedAccount extends Account {
+    private long version;
+
+    public long getVersion() {
+      return version;
+    }
+
+    public void setVersion(long version) {
+      this.version = version;
+    }
+  }
+
+  /**
+   * Sets the {@code version} column of each inserted or updated account to the next value of the
+   * {@code account_versions} sequence.
+   */
+  public static class AccountVersionTrigger implements Trigger {
+    private int versionColumn;
+
+    public static void install(Handle h) {
+      h.execute("create trigger accounts_version before insert, update on accounts for each row "
+                    + "call \"" + AccountVersionTrigger.class.getName() + "\"");
+    }
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before, int type)
+        throws SQLException {
+      try (ResultSet columns = conn.getMetaData().getColumns(null, schemaName, tableName, "VERSION")) {
+        if (!columns.next()) {
+          throw new SQLException("No version column in " + tableName);
+        }
+        this.versionColumn = columns.getInt("ORDINAL_POSITION") - 1;
+      }
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+      try (PreparedStatement stmt = conn.prepareStatement("select next value for account_versions");
+           ResultSet rs = stmt.executeQuery()) {
+        rs.next();
+        newRow[versionColumn] = rs.getLong(1);
+      }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void remove() {
+    }
+  }
+}
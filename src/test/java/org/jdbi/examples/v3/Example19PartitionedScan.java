@@ -0,0 +1,357 @@
+package org.jdbi.examples.v3;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.joda.money.CurrencyUnit.USD;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.jdbi.examples.rule.Allocations;
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.rule.Timings;
+import org.jdbi.examples.v3.Example05SqlObjectApi.Account;
+import org.jdbi.examples.v3.Example05SqlObjectApi.AccountDao;
+import org.jdbi.examples.v3.Example05SqlObjectApi.MoneyArgumentFactory;
+import org.jdbi.examples.v3.Example05SqlObjectApi.MoneyMapper;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.mapper.reflect.BeanMapper;
+import org.jdbi.v3.core.statement.PreparedBatch;
+import org.jdbi.v3.core.statement.Query;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.joda.money.Money;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example19PartitionedScan {
+  private static final int DENSE_ACCOUNTS = 9_000;
+  private static final int SPARSE_ACCOUNTS = 1_000;
+
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  @Test
+  public void test() throws Exception {
+    Jdbi jdbi = Jdbi.create(ds.getDataSource());
+    jdbi.installPlugin(new SqlObjectPlugin());
+    jdbi.registerRowMapper(BeanMapper.factory(Account.class));
+    jdbi.registerColumnMapper(new MoneyMapper());
+    jdbi.registerArgument(new MoneyArgumentFactory());
+
+    AtomicInteger queries = new AtomicInteger();
+    jdbi.setTimingCollector((elapsed, ctx) -> queries.incrementAndGet());
+
+    // Skewed keys: most ids are dense at the bottom, the rest spread thinly over a range a thousand times wider.
+    List<Integer> ids = IntStream.concat(IntStream.range(0, DENSE_ACCOUNTS),
+                                         IntStream.range(0, SPARSE_ACCOUNTS).map(i -> 10_000 + i * 10_000))
+        .boxed()
+        .collect(toList());
+    jdbi.useExtension(AccountDao.class, AccountDao::createTable);
+    jdbi.useHandle(h -> {
+      PreparedBatch batch = h.prepareBatch("insert into accounts (id, name, balance) values (:id, :name, :balance)");
+      for (int id : ids) {
+        batch.bind("id", id)
+            .bind("name", "Account " + id)
+            .bindByType("balance", Money.ofMinor(USD, id), Money.class)
+            .add();
+      }
+      batch.execute();
+    });
+
+    PartitionedScan<Account> scan = new PartitionedScan<>(jdbi, "accounts", "id", Account.class);
+
+    // Evenly spaced boundaries put almost every row in the first partition of a skewed table...
+    List<IdRange> evenRanges = scan.rangesFromMinMax(8);
+    assertThat(evenRanges).hasSize(8);
+    assertThat(scan.count(evenRanges.get(0))).isGreaterThan(DENSE_ACCOUNTS);
+
+    // ...while boundaries taken from a sample of the keys split it into roughly equal parts.
+    List<IdRange> sampledRanges = scan.rangesFromSample(8, 1000);
+    assertThat(sampledRanges).hasSize(8);
+    for (IdRange range : sampledRanges) {
+      assertThat(scan.count(range)).isBetween((long) ids.size() / 8 / 2, (long) ids.size() / 8 * 2);
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      // Ordered: the ranges are disjoint and sorted, so fork/join merges the partitions back in key order.
+      queries.set(0);
+      List<Integer> ordered = pool.submit(() -> scan.stream(sampledRanges, true)
+          .map(Account::getId)
+          .collect(toList()))
+          .get();
+      assertThat(ordered).containsExactlyElementsOf(ids);
+      assertThat(queries.get()).isEqualTo(sampledRanges.size());
+
+      // Unordered: every row exactly once, in whatever order the partitions finish.
+      List<Integer> unordered = pool.submit(() -> scan.stream(sampledRanges, false)
+          .map(Account::getId)
+          .collect(toList()))
+          .get();
+      assertThat(unordered).containsOnlyElementsOf(ids).hasSameSizeAs(ids);
+
+      // Throughput as the same table is cut into more partitions, scanned four at a time. H2 runs one statement at a
+      // time per database, so what scales is fetching and mapping the rows, and only with cores to spare.
+      int[] partitionCounts = {1, 2, 4, 8};
+      Allocations.Task[] scans = new Allocations.Task[partitionCounts.length];
+      for (int i = 0; i < partitionCounts.length; i++) {
+        List<IdRange> ranges = scan.rangesFromSample(partitionCounts[i], 1000);
+        scans[i] = () -> assertThat(pool.submit(() -> scan.stream(ranges, false).count()).get()).isEqualTo(ids.size());
+      }
+      long[] nanos = Timings.nanosPerOperation(1, scans);
+      StringBuilder rates = new StringBuilder("rows per second by partition count:");
+      for (int i = 0; i < partitionCounts.length; i++) {
+        rates.append(' ').append(partitionCounts[i]).append(": ").append(ids.size() * 1_000_000_000L / nanos[i]);
+      }
+      if (Timings.isAsserted() && Runtime.getRuntime().availableProcessors() >= 4) {
+        assertThat(nanos[2]).as(rates.toString()).isLessThan(nanos[0]);
+      }
+    }
+    finally {
+      pool.shutdown();
+    }
+
+    // Keys at the very ends of the key space are scanned too.
+    jdbi.useHandle(h -> {
+      h.execute("create table big_keys (id bigint primary key)");
+      h.execute("insert into big_keys values (?)", Long.MIN_VALUE);
+      h.execute("insert into big_keys values (?)", 0L);
+      h.execute("insert into big_keys values (?)", Long.MAX_VALUE);
+    });
+    PartitionedScan<Long> bigKeys = new PartitionedScan<>(jdbi, "big_keys", "id", Long.class);
+    assertThat(bigKeys.stream(bigKeys.rangesFromSample(2, 10), true).collect(toList()))
+        .containsExactly(Long.MIN_VALUE, 0L, Long.MAX_VALUE);
+
+    // Even when the span between them doesn't fit in a long.
+    List<IdRange> wideRanges = bigKeys.rangesFromMinMax(4);
+    assertThat(wideRanges).hasSize(4);
+    assertThat(wideRanges.get(2).getLower()).isEqualTo(0L);
+    assertThat(bigKeys.stream(wideRanges, true).collect(toList()))
+        .containsExactly(Long.MIN_VALUE, 0L, Long.MAX_VALUE);
+  }
+
+  /**
+   * Scans a table with an integer primary key in parallel, one key range per handle. Rows are mapped with whatever
+   * row mapper the Jdbi has registered for the row type.
+   *
+   * <p>Streams run in the fork/join pool of the thread that calls their terminal operation, which sets how many
+   * ranges are scanned at once. Each range is read in full before its rows are passed on, so choose enough ranges to
+   * keep partitions small.
+   */
+  public static class PartitionedScan<T> {
+    private final Jdbi jdbi;
+    private final String table;
+    private final String keyColumn;
+    private final Class<T> rowType;
+
+    public PartitionedScan(Jdbi jdbi, String table, String keyColumn, Class<T> rowType) {
+      this.jdbi = jdbi;
+      this.table = table;
+      this.keyColumn = keyColumn;
+      this.rowType = rowType;
+    }
+
+    /**
+     * Splits the key space between the smallest and largest key into equally wide ranges. Cheap, but only balanced
+     * when keys are evenly distributed. Returns fewer ranges when the keys span fewer values than {@code partitions}.
+     * The span may be wider than a long, so it is worked out with {@link BigInteger}.
+     */
+    public List<IdRange> rangesFromMinMax(int partitions) {
+      long[] bounds = jdbi.withHandle(h -> h.createQuery("select min(" + keyColumn + "), max(" + keyColumn + ") "
+                                                             + "from " + table)
+          .map((rs, ctx) -> new long[] {rs.getLong(1), rs.getLong(2)})
+          .findOnly());
+      BigInteger min = BigInteger.valueOf(bounds[0]);
+      BigInteger max = BigInteger.valueOf(bounds[1]);
+      BigInteger count = BigInteger.valueOf(partitions);
+      BigInteger width = max.subtract(min).add(count).divide(count).max(BigInteger.ONE);
+
+      List<Long> boundaries = new ArrayList<>();
+      for (int i = 1; i < partitions; i++) {
+        BigInteger boundary = min.add(width.multiply(BigInteger.valueOf(i)));
+        if (boundary.compareTo(max) > 0) {
+          break;
+        }
+        boundaries.add(boundary.longValueExact());
+      }
+      return ranges(boundaries);
+    }
+
+    /**
+     * Splits the table at quantiles of a random sample of about {@code sampleSize} keys, so that each range holds
+     * about the same number of rows however the keys are distributed.
+     */
+    public List<IdRange> rangesFromSample(int partitions, int sampleSize) {
+      List<Long> sample = jdbi.withHandle(h -> {
+        long rows = h.createQuery("select count(*) from " + table).mapTo(Long.class).findOnly();
+        return h.createQuery("select " + keyColumn + " from " + table + " where rand() < :fraction "
+                                 + "order by " + keyColumn)
+            .bind("fraction", Math.min(1.0, (double) sampleSize / Math.max(1, rows)))
+            .mapTo(Long.class)
+            .list();
+      });
+
+      List<Long> boundaries = new ArrayList<>();
+      for (int i = 1; i < partitions && !sample.isEmpty(); i++) {
+        boundaries.add(sample.get(i * sample.size() / partitions));
+      }
+      return ranges(boundaries);
+    }
+
+    /**
+     * Turns sorted inner boundaries into ranges covering every possible key; the first and last ranges are open-ended
+     * so rows outside the sampled or measured bounds are not lost, down to {@link Long#MIN_VALUE} and up to
+     * {@link Long#MAX_VALUE}.
+     */
+    private static List<IdRange> ranges(List<Long> boundaries) {
+      List<IdRange> ranges = new ArrayList<>();
+      long lower = Long.MIN_VALUE;
+      for (long boundary : boundaries) {
+        ranges.add(new IdRange(lower, boundary));
+        lower = boundary;
+      }
+      ranges.add(new IdRange(lower, Long.MAX_VALUE));
+      return Collections.unmodifiableList(ranges);
+    }
+
+    public long count(IdRange range) {
+      return jdbi.withHandle(h -> bindRange(h.createQuery("select count(*) from " + table + inRange(range)), range)
+          .mapTo(Long.class)
+          .findOnly());
+    }
+
+    public List<T> scan(IdRange range) {
+      return jdbi.withHandle(h -> bindRange(h.createQuery("select * from " + table + inRange(range)
+                                                              + " order by " + keyColumn), range)
+          .mapTo(rowType)
+          .list());
+    }
+
+    private String inRange(IdRange range) {
+      return " where " + keyColumn + " >= :lower" + (range.isUnbounded() ? "" : " and " + keyColumn + " < :upper");
+    }
+
+    private static Query bindRange(Query query, IdRange range) {
+      query.bind("lower", range.getLower());
+      if (!range.isUnbounded()) {
+        query.bind("upper", range.getUpper());
+      }
+      return query;
+    }
+
+    /**
+     * Returns a parallel stream over the given ranges. With {@code ordered}, rows come out in key order, assuming the
+     * ranges are sorted and disjoint as returned by this class; without it, in whatever order the ranges complete,
+     * which lets parallel operations skip reordering.
+     */
+    public Stream<T> stream(List<IdRange> ranges, boolean ordered) {
+      return StreamSupport.stream(new RangeSpliterator(ranges, 0, ranges.size(), ordered), true);
+    }
+
+    private class RangeSpliterator implements Spliterator<T> {
+      private final List<IdRange> ranges;
+      private final boolean ordered;
+      private int next;
+      private final int end;
+      private List<T> current = Collections.emptyList();
+      private int position;
+
+      RangeSpliterator(List<IdRange> ranges, int next, int end, boolean ordered) {
+        this.ranges = ranges;
+        this.next = next;
+        this.end = end;
+        this.ordered = ordered;
+      }
+
+      @Override
+      public boolean tryAdvance(Consumer<? super T> action) {
+        while (position == current.size()) {
+          if (next == end) {
+            return false;
+          }
+          current = scan(ranges.get(next++));
+          position = 0;
+        }
+        action.accept(current.get(position++));
+        return true;
+      }
+
+      @Override
+      public void forEachRemaining(Consumer<? super T> action) {
+        while (position < current.size()) {
+          action.accept(current.get(position++));
+        }
+        while (next < end) {
+          scan(ranges.get(next++)).forEach(action);
+        }
+      }
+
+      /**
+       * Splits off the first half of the ranges not yet started, so each fork/join task scans its own ranges.
+       */
+      @Override
+      public Spliterator<T> trySplit() {
+        if (position < current.size() || end - next < 2) {
+          return null;
+        }
+        int middle = next + (end - next) / 2;
+        Spliterator<T> prefix = new RangeSpliterator(ranges, next, middle, ordered);
+        next = middle;
+        return prefix;
+      }
+
+      /**
+       * Rows are only counted once their range is scanned, so the size is unknown until the last range has been.
+       */
+      @Override
+      public long estimateSize() {
+        return next == end ? current.size() - position : Long.MAX_VALUE;
+      }
+
+      @Override
+      public int characteristics() {
+        return NONNULL | (ordered ? ORDERED : 0);
+      }
+    }
+  }
+
+  /**
+   * A half-open range of keys, from {@code lower} inclusive to {@code upper} exclusive. An upper bound of
+   * {@link Long#MAX_VALUE} stands for no upper bound at all, so that the last range takes in the largest key too.
+   */
+  public static class IdRange {
+    private final long lower;
+    private final long upper;
+
+    public IdRange(long lower, long upper) {
+      this.lower = lower;
+      this.upper = upper;
+    }
+
+    public long getLower() {
+      return lower;
+    }
+
+    public long getUpper() {
+      return upper;
+    }
+
+    public boolean isUnbounded() {
+      return upper == Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+      return "[" + lower + ", " + (isUnbounded() ? "" : upper) + ")";
+    }
+  }
+}
@@ -0,0 +1,402 @@
+package org.jdbi.examples.v3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.joda.money.CurrencyUnit.USD;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.v3.Example05SqlObjectApi.Account;
+import org.jdbi.examples.v3.Example05SqlObjectApi.AccountDao;
+import org.jdbi.examples.v3.Example05SqlObjectApi.MoneyArgumentFactory;
+import org.jdbi.examples.v3.Example05SqlObjectApi.MoneyMapper;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.mapper.reflect.BeanMapper;
+import org.jdbi.v3.core.result.ResultIterator;
+import org.jdbi.v3.core.statement.PreparedBatch;
+import org.jdbi.v3.core.statement.Query;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.joda.money.Money;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example20ReactiveResults {
+  private static final int ACCOUNTS = 10_000;
+
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  @Test
+  public void test() throws Exception {
+    Jdbi jdbi = Jdbi.create(ds.getDataSource());
+    jdbi.installPlugin(new SqlObjectPlugin());
+    jdbi.registerRowMapper(BeanMapper.factory(Account.class));
+    jdbi.registerColumnMapper(new MoneyMapper());
+    jdbi.registerArgument(new MoneyArgumentFactory());
+
+    jdbi.useExtension(AccountDao.class, AccountDao::createTable);
+    jdbi.useHandle(h -> {
+      PreparedBatch batch = h.prepareBatch("insert into accounts (id, name, balance) values (:id, :name, :balance)");
+      for (int id = 0; id < ACCOUNTS; id++) {
+        batch.bind("id", id)
+            .bind("name", "Account " + id)
+            .bindByType("balance", Money.ofMinor(USD, id), Money.class)
+            .add();
+      }
+      batch.execute();
+    });
+
+    JdbcConnectionPool pool = (JdbcConnectionPool) ds.getDataSource();
+    ExecutorService scheduler = Executors.newFixedThreadPool(2);
+    try {
+      ResultPublisher<Account> accounts = new ResultPublisher<>(
+          jdbi, h -> h.createQuery("select * from accounts order by id"), Account.class, scheduler, 100);
+
+      // A slow subscriber gets exactly what it asks for, no matter how far behind it is.
+      RecordingSubscriber<Account> slow = new RecordingSubscriber<>();
+      accounts.subscribe(slow);
+      slow.subscription.request(5);
+      slow.awaitReceived(5);
+      Thread.sleep(50);
+      assertThat(slow.received).hasSize(5);
+      assertThat(pool.getActiveConnections()).isEqualTo(1);
+
+      slow.subscription.request(ACCOUNTS);
+      slow.awaitCompletion();
+      assertThat(slow.received).hasSize(ACCOUNTS);
+      assertThat(slow.received.get(ACCOUNTS - 1).getId()).isEqualTo(ACCOUNTS - 1);
+      assertThat(slow.maxOutstanding.get()).isLessThanOrEqualTo(0);
+      assertThat(slow.error.get()).isNull();
+      assertThat(pool.getActiveConnections()).isZero();
+
+      // A subscriber that requests more from inside onNext, one row at a time.
+      RecordingSubscriber<Account> oneByOne = new RecordingSubscriber<Account>() {
+        @Override
+        public void onNext(Account item) {
+          super.onNext(item);
+          subscription.request(1);
+        }
+      };
+      accounts.subscribe(oneByOne);
+      oneByOne.subscription.request(1);
+      oneByOne.awaitCompletion();
+      assertThat(oneByOne.received).hasSize(ACCOUNTS);
+
+      // Cancelling closes the statement and hands the connection back without reading the rest.
+      RecordingSubscriber<Account> cancelling = new RecordingSubscriber<>();
+      accounts.subscribe(cancelling);
+      cancelling.subscription.request(100);
+      cancelling.awaitReceived(100);
+      cancelling.subscription.cancel();
+      awaitNoActiveConnections(pool);
+      assertThat(cancelling.received).hasSize(100);
+      assertThat(cancelling.completed.getCount()).isEqualTo(1);
+
+      // Failures, including invalid demand, end the subscription with onError.
+      RecordingSubscriber<Account> invalid = new RecordingSubscriber<>();
+      accounts.subscribe(invalid);
+      invalid.subscription.request(0);
+      invalid.awaitCompletion();
+      assertThat(invalid.error.get()).isInstanceOf(IllegalArgumentException.class);
+
+      RecordingSubscriber<Account> failing = new RecordingSubscriber<>();
+      new ResultPublisher<>(jdbi, h -> h.createQuery("select * from no_such_table"), Account.class, scheduler, 100)
+          .subscribe(failing);
+      failing.subscription.request(1);
+      failing.awaitCompletion();
+      assertThat(failing.error.get()).isNotNull();
+      awaitNoActiveConnections(pool);
+
+      // A subscriber that throws from onNext is cancelled, not signalled with its own exception.
+      RecordingSubscriber<Account> throwing = new RecordingSubscriber<Account>() {
+        @Override
+        public void onNext(Account item) {
+          super.onNext(item);
+          throw new IllegalStateException("Subscriber failed");
+        }
+      };
+      accounts.subscribe(throwing);
+      throwing.subscription.request(10);
+      throwing.awaitReceived(1);
+      awaitNoActiveConnections(pool);
+      throwing.subscription.request(10);
+      Thread.sleep(50);
+      assertThat(throwing.received).hasSize(1);
+      assertThat(throwing.completed.getCount()).isEqualTo(1);
+
+      // A scheduler that turns the subscription's work away fails the subscription.
+      RecordingSubscriber<Account> rejected = new RecordingSubscriber<>();
+      new ResultPublisher<>(jdbi, h -> h.createQuery("select * from accounts order by id"), Account.class,
+                            command -> {
+                              throw new RejectedExecutionException("Scheduler is shut down");
+                            }, 100)
+          .subscribe(rejected);
+      rejected.subscription.request(1);
+      rejected.awaitCompletion();
+      assertThat(rejected.error.get()).isInstanceOf(RejectedExecutionException.class);
+      assertThat(rejected.received).isEmpty();
+    }
+    finally {
+      scheduler.shutdown();
+    }
+  }
+
+  private static void awaitNoActiveConnections(JdbcConnectionPool pool) throws InterruptedException {
+    for (int i = 0; i < 100 && pool.getActiveConnections() > 0; i++) {
+      Thread.sleep(10);
+    }
+    assertThat(pool.getActiveConnections()).isZero();
+  }
+
+  /**
+   * The interfaces of {@code java.util.concurrent.Flow} (and of Reactive Streams), which this project cannot use
+   * while it targets Java 8. The signatures match, so an adapter to either is one line per method.
+   */
+  public interface Publisher<T> {
+    void subscribe(Subscriber<? super T> subscriber);
+  }
+
+  public interface Subscriber<T> {
+    void onSubscribe(Subscription subscription);
+
+    void onNext(T item);
+
+    void onError(Throwable throwable);
+
+    void onComplete();
+  }
+
+  public interface Subscription {
+    void request(long n);
+
+    void cancel();
+  }
+
+  /**
+   * Publishes the rows of a query. Every subscriber runs the query again, on its own handle, which stays open until
+   * the results are exhausted, the subscription is cancelled, or the query fails.
+   *
+   * <p>Rows are read from the result set only when the subscriber has demand for them, and the JDBC fetch size is
+   * set to {@code fetchSize}, so a slow subscriber holds back the database cursor rather than piling rows up in memory.
+   * All reads and signals for a subscription happen on {@code scheduler}, one task at a time. If {@code scheduler}
+   * rejects a task, the subscription fails with the {@link RejectedExecutionException}.
+   *
+   * <p>A subscriber that throws from {@code onNext} is treated as having cancelled, as rule 2.13 of Reactive Streams
+   * asks: the query is closed and the subscriber gets no further signals, not even {@code onError}.
+   */
+  public static class ResultPublisher<T> implements Publisher<T> {
+    private final Jdbi jdbi;
+    private final Function<Handle, Query> statement;
+    private final Class<T> rowType;
+    private final Executor scheduler;
+    private final int fetchSize;
+
+    public ResultPublisher(Jdbi jdbi, Function<Handle, Query> statement, Class<T> rowType, Executor scheduler,
+                           int fetchSize) {
+      this.jdbi = jdbi;
+      this.statement = statement;
+      this.rowType = rowType;
+      this.scheduler = scheduler;
+      this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+      subscriber.onSubscribe(new QuerySubscription(subscriber));
+    }
+
+    private class QuerySubscription implements Subscription {
+      private final Subscriber<? super T> subscriber;
+      private final AtomicLong demand = new AtomicLong();
+      private final AtomicInteger pending = new AtomicInteger();
+      private volatile boolean cancelled;
+      private volatile Throwable invalidRequest;
+
+      // Only touched by the drain loop, which never runs concurrently with itself.
+      private Handle handle;
+      private ResultIterator<T> rows;
+      private boolean done;
+
+      QuerySubscription(Subscriber<? super T> subscriber) {
+        this.subscriber = subscriber;
+      }
+
+      @Override
+      public void request(long n) {
+        if (n <= 0) {
+          invalidRequest = new IllegalArgumentException("Requested " + n + " rows; demand must be positive");
+        }
+        else {
+          demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+        }
+        schedule();
+      }
+
+      @Override
+      public void cancel() {
+        cancelled = true;
+        schedule();
+      }
+
+      /**
+       * Starts the drain loop unless it is already running; if it is, it will go round once more.
+       */
+      private void schedule() {
+        if (pending.getAndIncrement() == 0) {
+          try {
+            scheduler.execute(this::drain);
+          }
+          catch (RejectedExecutionException e) {
+            // No drain loop is running, and none will start again since pending stays above zero.
+            if (!done) {
+              finish();
+              subscriber.onError(e);
+            }
+          }
+        }
+      }
+
+      private void drain() {
+        int missed = 1;
+        do {
+          drainOnce();
+          missed = pending.addAndGet(-missed);
+        }
+        while (missed != 0);
+      }
+
+      private void drainOnce() {
+        if (done) {
+          return;
+        }
+        if (cancelled) {
+          finish();
+          return;
+        }
+        if (invalidRequest != null) {
+          finish();
+          subscriber.onError(invalidRequest);
+          return;
+        }
+
+        while (demand.get() > 0 && !cancelled && invalidRequest == null) {
+          boolean hasNext;
+          T row = null;
+          try {
+            if (rows == null) {
+              handle = jdbi.open();
+              rows = statement.apply(handle).setFetchSize(fetchSize).mapTo(rowType).iterator();
+            }
+            hasNext = rows.hasNext();
+            if (hasNext) {
+              row = rows.next();
+            }
+          }
+          catch (RuntimeException e) {
+            finish();
+            subscriber.onError(e);
+            return;
+          }
+          if (!hasNext) {
+            finish();
+            subscriber.onComplete();
+            return;
+          }
+
+          if (demand.get() != Long.MAX_VALUE) {
+            demand.decrementAndGet();
+          }
+          try {
+            subscriber.onNext(row);
+          }
+          catch (RuntimeException e) {
+            // The subscriber broke its contract; don't signal it again, but don't hold on to the query either.
+            cancelled = true;
+            finish();
+            return;
+          }
+        }
+      }
+
+      private void finish() {
+        done = true;
+        try {
+          if (rows != null) {
+            rows.close();
+          }
+        }
+        finally {
+          if (handle != null) {
+            handle.close();
+          }
+        }
+      }
+    }
+  }
+
+  private static class RecordingSubscriber<T> implements Subscriber<T> {
+    final List<T> received = new CopyOnWriteArrayList<>();
+    final CountDownLatch completed = new CountDownLatch(1);
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final AtomicLong requested = new AtomicLong();
+    final AtomicLong maxOutstanding = new AtomicLong(Long.MIN_VALUE);
+    volatile Subscription subscription;
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      this.subscription = new Subscription() {
+        @Override
+        public void request(long n) {
+          requested.addAndGet(n);
+          subscription.request(n);
+        }
+
+        @Override
+        public void cancel() {
+          subscription.cancel();
+        }
+      };
+    }
+
+    @Override
+    public void onNext(T item) {
+      received.add(item);
+      maxOutstanding.accumulateAndGet(received.size() - requested.get(), Math::max);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error.set(throwable);
+      completed.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+      completed.countDown();
+    }
+
+    void awaitReceived(int count) throws InterruptedException {
+      for (int i = 0; i < 500 && received.size() < count; i++) {
+        Thread.sleep(10);
+      }
+      assertThat(received).hasSize(count);
+    }
+
+    void awaitCompletion() throws InterruptedException {
+      assertThat(completed.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+  }
+}
@@ -0,0 +1,337 @@
+package org.jdbi.examples.v3;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.MOBILE;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.WORK;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jdbi.examples.rule.Allocations;
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.v3.Example06Joins.Contact;
+import org.jdbi.examples.v3.Example06Joins.ContactDao;
+import org.jdbi.examples.v3.Example06Joins.Phone;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.extension.ExtensionMethod;
+import org.jdbi.v3.core.rewriter.RewrittenStatement;
+import org.jdbi.v3.core.statement.SqlStatements;
+import org.jdbi.v3.core.statement.StatementContext;
+import org.jdbi.v3.core.statement.TimingCollector;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example21SlowQueryMonitor {
+  private static final int CONTACTS = 1000;
+
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  public interface ContactSearchDao extends ContactDao {
+    @SqlQuery("select contactId from phones where phone = :phone")
+    List<Integer> findContactIdsByPhone(String phone);
+  }
+
+  @Test
+  public void test() throws Exception {
+    Jdbi jdbi = Jdbi.create(ds.getDataSource());
+    jdbi.installPlugin(new SqlObjectPlugin());
+
+    jdbi.useExtension(ContactDao.class, dao -> {
+      dao.createContactTable();
+      dao.createPhoneTable();
+      for (int id = 0; id < CONTACTS; id++) {
+        dao.insertFullContact(Contact.create(id * 3, "Contact " + id,
+                                             new Phone(id * 3 + 1, WORK, "800-555-" + id),
+                                             new Phone(id * 3 + 2, MOBILE, "801-555-" + id)));
+      }
+    });
+
+    // A zero threshold makes every statement slow, and explaining every one shows what each plan looks like.
+    SlowQueryMonitor monitor = new SlowQueryMonitor(Duration.ZERO, 1);
+    jdbi.setTimingCollector(monitor);
+    jdbi.useExtension(ContactSearchDao.class, dao -> {
+      assertThat(dao.getFullContactById(3).getPhones()).hasSize(2);
+      assertThat(dao.listFullContacts()).hasSize(CONTACTS);
+      assertThat(dao.findContactIdsByPhone("801-555-1")).containsExactly(3);
+    });
+
+    // The join on phones.contactId uses the index H2 creates for the foreign key...
+    SlowQuery byId = monitor.find("ContactDao.getFullContactById");
+    assertThat(byId.getPlan()).contains("PHONES");
+    assertThat(byId.getFullScans()).isEmpty();
+    assertThat(byId.getElapsedNanos()).isPositive();
+
+    // ...listing everything has to read every contact, and searching by number has to read every phone.
+    assertThat(monitor.find("ContactDao.listFullContacts").getFullScans()).containsExactly("PUBLIC.CONTACTS");
+    SlowQuery byPhone = monitor.find("ContactSearchDao.findContactIdsByPhone");
+    assertThat(byPhone.getFullScans()).containsExactly("PUBLIC.PHONES");
+    assertThat(byPhone.getSql()).isEqualTo("select contactId from phones where phone = ?");
+
+    // Once the column is indexed, the same statement with the same bindings is no longer flagged.
+    jdbi.useHandle(h -> h.execute("create index phones_phone on phones (phone)"));
+    monitor.clear();
+    jdbi.useExtension(ContactSearchDao.class, dao -> dao.findContactIdsByPhone("801-555-1"));
+    assertThat(monitor.find("ContactSearchDao.findContactIdsByPhone").getFullScans()).isEmpty();
+
+    // Queries in parentheses or with a common table expression are explained too.
+    monitor.clear();
+    jdbi.useHandle(h -> {
+      assertThat(h.createQuery("(select contactId from phones where phone = :phone)")
+                     .bind("phone", "801-555-1")
+                     .mapTo(Integer.class)
+                     .list())
+          .containsExactly(3);
+      assertThat(h.createQuery("with recursive ids(n) as (select 1 union all select n + 1 from ids where n < 3) "
+                                   + "select n from ids")
+                     .mapTo(Integer.class)
+                     .list())
+          .containsExactly(1, 2, 3);
+    });
+    assertThat(monitor.getSlowQueries()).hasSize(2).allMatch(SlowQuery::isSampled);
+
+    // Sampling explains the first slow execution of each statement and every hundredth after that.
+    SlowQueryMonitor sampling = new SlowQueryMonitor(Duration.ZERO, 100);
+    jdbi.setTimingCollector(sampling);
+    jdbi.useExtension(ContactDao.class, dao -> {
+      for (int id = 0; id < CONTACTS; id++) {
+        dao.getFullContactById(id * 3);
+      }
+    });
+    assertThat(sampling.getSlowCount()).isEqualTo(CONTACTS);
+    assertThat(sampling.getExplainCount()).isEqualTo(CONTACTS / 100);
+    assertThat(sampling.getSlowQueries().stream().filter(SlowQuery::isSampled).count()).isEqualTo(CONTACTS / 100);
+
+    // Only the most recently slow statements are counted, so one pushed out by enough others is explained afresh.
+    SlowQueryMonitor bounded = new SlowQueryMonitor(Duration.ZERO, 100);
+    jdbi.setTimingCollector(bounded);
+    jdbi.useHandle(h -> {
+      h.createQuery("select 0").mapTo(Integer.class).findOnly();
+      h.createQuery("select 0").mapTo(Integer.class).findOnly();
+      assertThat(bounded.getExplainCount()).isEqualTo(1);
+      for (int i = 1; i <= SlowQueryMonitor.MAX_STATEMENTS; i++) {
+        h.createQuery("select " + i).mapTo(Integer.class).findOnly();
+      }
+      h.createQuery("select 0").mapTo(Integer.class).findOnly();
+    });
+    assertThat(bounded.getExplainCount()).isEqualTo(SlowQueryMonitor.MAX_STATEMENTS + 2);
+
+    // Statements under the threshold cost a comparison: nothing is recorded and nothing is allocated.
+    SlowQueryMonitor quiet = new SlowQueryMonitor(Duration.ofMinutes(1), 1);
+    jdbi.setTimingCollector(quiet);
+    jdbi.useExtension(ContactDao.class, dao -> dao.getFullContactById(3));
+    assertThat(quiet.getSlowQueries()).isEmpty();
+
+    assertThat(Allocations.bytesPerOperation(1000, () -> {
+      for (int i = 0; i < 1000; i++) {
+        quiet.collect(i, null);
+      }
+    })).isZero();
+  }
+
+  /**
+   * Records statements that take longer than a threshold, along with the SqlObject method that ran them. For a
+   * sample of slow queries it also runs H2's {@code EXPLAIN ANALYZE} with the same bindings, on the same connection,
+   * while the statement is still open, and keeps the plan.
+   *
+   * <p>Only the first slow execution of each SQL string and every {@code sampleEvery}-th after that is explained,
+   * since explaining with {@code ANALYZE} runs the query a second time. Executions are counted for the
+   * {@value #MAX_STATEMENTS} SQL strings most recently slow, so that statements built with literals cannot grow the
+   * counts without bound; a string that drops out starts over as if never seen. Queries are told apart by a leading
+   * {@code SELECT} or {@code WITH}, after any opening parentheses; other statements are recorded but never explained.
+   * The most recent {@value #MAX_RECORDED} slow statements are kept.
+   */
+  public static class SlowQueryMonitor implements TimingCollector {
+    public static final int MAX_RECORDED = 1000;
+    public static final int MAX_STATEMENTS = 1000;
+    private static final Pattern QUERY = Pattern.compile("^[\\s(]*(select|with)\\b", Pattern.CASE_INSENSITIVE);
+
+    private final long thresholdNanos;
+    private final int sampleEvery;
+    private final Map<String, Long> slowCounts = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+        return size() > MAX_STATEMENTS;
+      }
+    };
+    private final AtomicLong slowCount = new AtomicLong();
+    private final AtomicLong explainCount = new AtomicLong();
+    private final Deque<SlowQuery> recorded = new ArrayDeque<>();
+
+    public SlowQueryMonitor(Duration threshold, int sampleEvery) {
+      if (sampleEvery < 1) {
+        throw new IllegalArgumentException("sampleEvery must be at least 1");
+      }
+      this.thresholdNanos = threshold.toNanos();
+      this.sampleEvery = sampleEvery;
+    }
+
+    @Override
+    public void collect(long elapsedNanos, StatementContext ctx) {
+      if (elapsedNanos < thresholdNanos) {
+        return;
+      }
+      slowCount.incrementAndGet();
+
+      String rawSql = ctx.getRawSql();
+      long seen;
+      synchronized (slowCounts) {
+        seen = slowCounts.getOrDefault(rawSql, 0L);
+        slowCounts.put(rawSql, seen + 1);
+      }
+      String plan = seen % sampleEvery == 0 ? explain(ctx) : null;
+
+      SlowQuery slowQuery = new SlowQuery(methodName(ctx.getExtensionMethod()), ctx.getRewrittenSql(), elapsedNanos,
+                                          plan);
+      synchronized (recorded) {
+        if (recorded.size() == MAX_RECORDED) {
+          recorded.removeFirst();
+        }
+        recorded.addLast(slowQuery);
+      }
+    }
+
+    private String explain(StatementContext ctx) {
+      RewrittenStatement rewritten = ctx.getConfig(SqlStatements.class)
+          .getStatementRewriter()
+          .rewrite(ctx.getRawSql(), ctx.getBinding(), ctx);
+      if (!QUERY.matcher(rewritten.getSql()).find()) {
+        return null;
+      }
+
+      explainCount.incrementAndGet();
+      try (PreparedStatement stmt = ctx.getConnection().prepareStatement("explain analyze " + rewritten.getSql())) {
+        rewritten.bind(ctx.getBinding(), stmt);
+        try (ResultSet rs = stmt.executeQuery()) {
+          StringBuilder plan = new StringBuilder();
+          while (rs.next()) {
+            plan.append(rs.getString(1));
+          }
+          return plan.toString();
+        }
+      }
+      catch (SQLException e) {
+        // The statement being monitored already succeeded; a plan we cannot get is not worth failing it for.
+        return null;
+      }
+    }
+
+    private static String methodName(ExtensionMethod method) {
+      if (method == null) {
+        return null;
+      }
+      return method.getMethod().getDeclaringClass().getSimpleName() + "." + method.getMethod().getName();
+    }
+
+    public long getSlowCount() {
+      return slowCount.get();
+    }
+
+    public long getExplainCount() {
+      return explainCount.get();
+    }
+
+    public List<SlowQuery> getSlowQueries() {
+      synchronized (recorded) {
+        return new ArrayList<>(recorded);
+      }
+    }
+
+    /**
+     * Returns the most recent explained slow query run by the given method, named as {@code Type.method}.
+     */
+    public SlowQuery find(String method) {
+      List<SlowQuery> explained = getSlowQueries().stream()
+          .filter(query -> method.equals(query.getMethod()) && query.isSampled())
+          .collect(toList());
+      if (explained.isEmpty()) {
+        throw new IllegalStateException("No explained slow query for " + method);
+      }
+      return explained.get(explained.size() - 1);
+    }
+
+    public void clear() {
+      synchronized (recorded) {
+        recorded.clear();
+      }
+      slowCounts.clear();
+    }
+  }
+
+  public static class SlowQuery {
+    private static final Pattern TABLE_SCAN = Pattern.compile("/\\* (\\S+)\\.tableScan \\*/");
+
+    private final String method;
+    private final String sql;
+    private final long elapsedNanos;
+    private final String plan;
+
+    SlowQuery(String method, String sql, long elapsedNanos, String plan) {
+      this.method = method;
+      this.sql = sql;
+      this.elapsedNanos = elapsedNanos;
+      this.plan = plan;
+    }
+
+    /**
+     * The SqlObject method that ran the statement, as {@code Type.method}, or null if it did not come from one.
+     */
+    public String getMethod() {
+      return method;
+    }
+
+    public String getSql() {
+      return sql;
+    }
+
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    /**
+     * The output of {@code EXPLAIN ANALYZE}, or null if this execution was not sampled.
+     */
+    public String getPlan() {
+      return plan;
+    }
+
+    public boolean isSampled() {
+      return plan != null;
+    }
+
+    /**
+     * The tables the plan reads in full, without an index.
+     */
+    public List<String> getFullScans() {
+      if (plan == null) {
+        return Collections.emptyList();
+      }
+      List<String> tables = new ArrayList<>();
+      Matcher matcher = TABLE_SCAN.matcher(plan);
+      while (matcher.find()) {
+        tables.add(matcher.group(1));
+      }
+      return tables;
+    }
+
+    @Override
+    public String toString() {
+      return method + " took " + elapsedNanos + "ns: " + sql + (plan == null ? "" : "\n" + plan);
+    }
+  }
+}
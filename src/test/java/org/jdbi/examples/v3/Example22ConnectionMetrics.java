@@ -0,0 +1,161 @@
+package org.jdbi.examples.v3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.jdbi.examples.rule.Allocations;
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.rule.InstrumentedDataSource;
+import org.jdbi.examples.rule.InstrumentedDataSource.ConnectionLeak;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.Rule;
+import org.junit.Test;
+import org.skife.jdbi.v2.DBI;
+
+public class Example22ConnectionMetrics {
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  @Test
+  public void test() throws Exception {
+    JdbcConnectionPool pool = (JdbcConnectionPool) ds.getDataSource();
+    pool.setMaxConnections(2);
+
+    InstrumentedDataSource metered = new InstrumentedDataSource(pool, Duration.ofMillis(100));
+    Jdbi jdbi = Jdbi.create(metered);
+    DBI dbi = new DBI(metered);
+
+    // Both generations of the API check connections out through the wrapper and give them back.
+    jdbi.useHandle(h -> h.execute("create table accounts (id int primary key, name varchar(100))"));
+    try (org.skife.jdbi.v2.Handle h = dbi.open()) {
+      h.execute("insert into accounts (id, name) values (?, ?)", 1, "Alice");
+    }
+    assertThat(metered.getAcquisitions()).isEqualTo(2);
+    assertThat(metered.getActive()).isZero();
+    assertThat(metered.getPeakActive()).isEqualTo(1);
+
+    // With the pool exhausted, a third caller queues until a connection comes back.
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      long slowBefore = slowerThan(metered.getLatencyHistogram(), Duration.ofMillis(10));
+      Future<String> queued;
+      try (Handle first = jdbi.open();
+           org.skife.jdbi.v2.Handle second = dbi.open()) {
+        assertThat(metered.getActive()).isEqualTo(2);
+        assertThat(metered.getPeakActive()).isEqualTo(2);
+
+        queued = executor.submit(() -> jdbi.withHandle(h -> h.createQuery("select name from accounts")
+            .mapTo(String.class)
+            .findOnly()));
+        awaitWaiting(metered, 1);
+        Thread.sleep(20);
+      }
+      assertThat(queued.get()).isEqualTo("Alice");
+      assertThat(metered.getWaiting()).isZero();
+      assertThat(metered.getPeakWaiting()).isEqualTo(1);
+
+      // The queued checkout lands in a slow bucket; the two that were handed out at once did not.
+      long[] histogram = metered.getLatencyHistogram();
+      assertThat(Arrays.stream(histogram).sum()).isEqualTo(metered.getAcquisitions());
+      assertThat(slowerThan(histogram, Duration.ofMillis(10))).isEqualTo(slowBefore + 1);
+
+      // A handle held past the threshold is reported with the stack of the thread holding it.
+      CountDownLatch held = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      Future<?> holder = executor.submit(() -> holdConnection(jdbi, held, release));
+      held.await();
+      assertThat(metered.findLeaks()).isEmpty();
+      Thread.sleep(150);
+
+      List<ConnectionLeak> leaks = metered.findLeaks();
+      assertThat(leaks).hasSize(1);
+      assertThat(leaks.get(0).isAcquisitionSite()).isFalse();
+      assertThat(leaks.get(0).getHeldNanos()).isGreaterThanOrEqualTo(Duration.ofMillis(100).toNanos());
+      assertThat(leaks.get(0).getStackTrace()).extracting(StackTraceElement::getMethodName).contains("holdConnection");
+      release.countDown();
+      holder.get();
+      assertThat(metered.findLeaks()).isEmpty();
+    }
+    finally {
+      executor.shutdown();
+    }
+
+    // A handle that is never closed is found by where it was opened, when acquisition sites are recorded.
+    InstrumentedDataSource tracing = new InstrumentedDataSource(pool, Duration.ofMillis(100), true);
+    Handle leaked = leakHandle(Jdbi.create(tracing));
+    Thread.sleep(150);
+    List<ConnectionLeak> leaks = tracing.findLeaks();
+    assertThat(leaks).hasSize(1);
+    assertThat(leaks.get(0).isAcquisitionSite()).isTrue();
+    assertThat(leaks.get(0).getThreadName()).isEqualTo(Thread.currentThread().getName());
+    assertThat(leaks.get(0).getStackTrace()).extracting(StackTraceElement::getMethodName).contains("leakHandle");
+    leaked.close();
+
+    // Closing a connection twice checks it in once, and a stale reference cannot touch a later checkout.
+    int activeBefore = metered.getActive();
+    Connection stale = metered.getConnection();
+    stale.close();
+    Connection current = metered.getConnection();
+    stale.close();
+    assertThat(current.isClosed()).isFalse();
+    assertThat(metered.getActive()).isEqualTo(activeBefore + 1);
+    current.close();
+    assertThat(metered.getActive()).isEqualTo(activeBefore);
+
+    // Checking out and returning a connection costs the pool's own allocation plus one small wrapper.
+    long unwrapped = Allocations.bytesPerOperation(1000, () -> checkOutAndReturn(pool, 1000));
+    long wrapped = Allocations.bytesPerOperation(1000, () -> checkOutAndReturn(metered, 1000));
+    assertThat(wrapped - unwrapped)
+        .as("extra bytes per checkout with metrics (without: %d)", unwrapped)
+        .isLessThanOrEqualTo(64);
+  }
+
+  private static Void holdConnection(Jdbi jdbi, CountDownLatch held, CountDownLatch release)
+      throws InterruptedException {
+    jdbi.useHandle(h -> {
+      held.countDown();
+      release.await();
+    });
+    return null;
+  }
+
+  private static Handle leakHandle(Jdbi jdbi) {
+    return jdbi.open();
+  }
+
+  private static void checkOutAndReturn(javax.sql.DataSource dataSource, int times) throws Exception {
+    for (int i = 0; i < times; i++) {
+      try (Connection c = dataSource.getConnection()) {
+        c.getAutoCommit();
+      }
+    }
+  }
+
+  private static void awaitWaiting(InstrumentedDataSource dataSource, int expected) throws InterruptedException {
+    for (int i = 0; i < 500 && dataSource.getWaiting() < expected; i++) {
+      Thread.sleep(10);
+    }
+    assertThat(dataSource.getWaiting()).isEqualTo(expected);
+  }
+
+  private static long slowerThan(long[] histogram, Duration latency) {
+    long[] bounds = InstrumentedDataSource.getLatencyBucketBoundsNanos();
+    long count = 0;
+    for (int i = 0; i < histogram.length; i++) {
+      if (i > 0 && bounds[i - 1] >= latency.toNanos()) {
+        count += histogram[i];
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,351 @@
+package org.jdbi.examples.v3;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.joda.money.CurrencyUnit.USD;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.v3.Example05SqlObjectApi.Account;
+import org.jdbi.examples.v3.Example05SqlObjectApi.AccountDao;
+import org.jdbi.examples.v3.Example05SqlObjectApi.MoneyArgumentFactory;
+import org.jdbi.examples.v3.Example05SqlObjectApi.MoneyMapper;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.config.ConfigRegistry;
+import org.jdbi.v3.core.config.JdbiConfig;
+import org.jdbi.v3.core.spi.JdbiPlugin;
+import org.jdbi.v3.core.statement.DefaultStatementBuilder;
+import org.jdbi.v3.core.statement.StatementBuilder;
+import org.jdbi.v3.core.statement.StatementBuilderFactory;
+import org.jdbi.v3.core.statement.StatementContext;
+import org.jdbi.v3.core.statement.UnableToExecuteStatementException;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.jdbi.v3.sqlobject.config.ConfiguringAnnotation;
+import org.jdbi.v3.sqlobject.config.Configurer;
+import org.jdbi.v3.sqlobject.config.RegisterArgumentFactory;
+import org.jdbi.v3.sqlobject.config.RegisterBeanMapper;
+import org.jdbi.v3.sqlobject.config.RegisterColumnMapper;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.joda.money.Money;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example24StatementDeadlines {
+  private static final int ACCOUNTS = 1000;
+
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  /**
+   * Queries slowed down by an H2 function that sleeps once per row, so a deadline can interrupt them part way. H2
+   * checks whether a query was cancelled every 128 rows.
+   */
+  @RegisterBeanMapper(Account.class)
+  @RegisterColumnMapper(MoneyMapper.class)
+  @RegisterArgumentFactory(MoneyArgumentFactory.class)
+  public interface SlowAccountDao extends AccountDao {
+    @SqlQuery("select * from accounts where sleep(:millisPerRow) is null order by id")
+    List<Account> listSlowly(long millisPerRow);
+  }
+
+  /**
+   * A reporting DAO whose queries are allowed to take longer than the Jdbi default, except for one.
+   */
+  @Deadline(2000)
+  @RegisterBeanMapper(Account.class)
+  @RegisterColumnMapper(MoneyMapper.class)
+  @RegisterArgumentFactory(MoneyArgumentFactory.class)
+  public interface ReportingAccountDao {
+    @SqlQuery("select * from accounts where sleep(:millisPerRow) is null order by id")
+    List<Account> listSlowly(long millisPerRow);
+
+    @Deadline(50)
+    @SqlQuery("select * from accounts where sleep(:millisPerRow) is null order by id")
+    List<Account> listSlowlyWithShortDeadline(long millisPerRow);
+  }
+
+  @Test
+  public void test() throws Exception {
+    JdbcConnectionPool pool = (JdbcConnectionPool) ds.getDataSource();
+    ScheduledExecutorService watchdogThread = Executors.newSingleThreadScheduledExecutor();
+    try {
+      DeadlinePlugin deadlines = new DeadlinePlugin(watchdogThread);
+      Jdbi jdbi = Jdbi.create(pool);
+      jdbi.installPlugin(new SqlObjectPlugin());
+      jdbi.installPlugin(deadlines);
+      jdbi.getConfig(Deadlines.class).setTimeout(Duration.ofMillis(200));
+
+      jdbi.useHandle(h -> h.execute("create alias sleep for \"java.lang.Thread.sleep\""));
+      jdbi.useExtension(AccountDao.class, dao -> {
+        dao.createTable();
+        for (int id = 0; id < ACCOUNTS; id++) {
+          dao.insert(new Account(id, "Account " + id, Money.ofMinor(USD, id)));
+        }
+      });
+
+      // Queries that finish within the Jdbi-wide default are left alone...
+      SlowAccountDao dao = jdbi.onDemand(SlowAccountDao.class);
+      assertThat(dao.listSlowly(0)).hasSize(ACCOUNTS);
+      assertThat(deadlines.getCancelled()).isZero();
+
+      // ...a runaway is cancelled at the deadline, and its connection goes straight back to the pool.
+      assertCancelledWithin(() -> dao.listSlowly(2), Duration.ofMillis(200));
+      assertThat(deadlines.getCancelled()).isEqualTo(1);
+      assertThat(pool.getActiveConnections()).isZero();
+
+      // The handle is still usable after one of its statements was cancelled.
+      try (Handle h = jdbi.open()) {
+        assertCancelledWithin(() -> h.createQuery("select * from accounts where sleep(2) is null").mapToMap().list(),
+                              Duration.ofMillis(200));
+        assertThat(h.createQuery("select count(*) from accounts").mapTo(int.class).findOnly()).isEqualTo(ACCOUNTS);
+
+        // Handles, like Jdbi, carry their own copy of the setting.
+        h.getConfig(Deadlines.class).setTimeout(null);
+        assertThat(h.createQuery("select * from accounts where sleep(1) is null").mapToMap().list()).hasSize(ACCOUNTS);
+      }
+      assertThat(deadlines.getCancelled()).isEqualTo(2);
+
+      // A DAO can raise the default for all its methods, and a method can override the DAO.
+      ReportingAccountDao reports = jdbi.onDemand(ReportingAccountDao.class);
+      assertThat(reports.listSlowly(1)).hasSize(ACCOUNTS);
+      assertCancelledWithin(() -> reports.listSlowlyWithShortDeadline(1), Duration.ofMillis(50));
+      assertThat(deadlines.getCancelled()).isEqualTo(3);
+      assertThat(pool.getActiveConnections()).isZero();
+    }
+    finally {
+      watchdogThread.shutdown();
+    }
+  }
+
+  private static void assertCancelledWithin(Runnable statement, Duration deadline) {
+    long start = System.nanoTime();
+    Throwable thrown = catchThrowable(statement::run);
+    long elapsed = System.nanoTime() - start;
+
+    assertThat(thrown).isInstanceOf(UnableToExecuteStatementException.class);
+    assertThat(thrown.getCause()).isInstanceOf(SQLException.class).hasMessageContaining("canceled");
+    // Up to 128 more rows may be read before H2 notices the cancel, plus scheduling slack.
+    assertThat(elapsed).isBetween(deadline.toNanos(), deadline.plusMillis(500).toNanos());
+  }
+
+  /**
+   * Sets the deadline for statements of the annotated SqlObject type or method, in milliseconds; 0 for none. Method
+   * annotations override type annotations, which override the setting of the Jdbi or handle.
+   */
+  @Retention(RUNTIME)
+  @Target({TYPE, METHOD})
+  @ConfiguringAnnotation(DeadlineConfigurer.class)
+  public @interface Deadline {
+    long value();
+  }
+
+  public static class DeadlineConfigurer implements Configurer {
+    @Override
+    public void configureForType(ConfigRegistry registry, Annotation annotation, Class<?> sqlObjectType) {
+      configure(registry, (Deadline) annotation);
+    }
+
+    @Override
+    public void configureForMethod(ConfigRegistry registry, Annotation annotation, Class<?> sqlObjectType,
+                                   Method method) {
+      configure(registry, (Deadline) annotation);
+    }
+
+    private static void configure(ConfigRegistry registry, Deadline deadline) {
+      registry.get(Deadlines.class).setTimeout(deadline.value() == 0 ? null : Duration.ofMillis(deadline.value()));
+    }
+  }
+
+  /**
+   * How long a statement may run before it is cancelled; null, the default, for no limit. Applies to statements
+   * created while the {@link DeadlinePlugin} is installed.
+   */
+  public static class Deadlines implements JdbiConfig<Deadlines> {
+    private Duration timeout;
+
+    public Deadlines() {
+    }
+
+    private Deadlines(Deadlines that) {
+      this.timeout = that.timeout;
+    }
+
+    public Duration getTimeout() {
+      return timeout;
+    }
+
+    public Deadlines setTimeout(Duration timeout) {
+      this.timeout = timeout;
+      return this;
+    }
+
+    @Override
+    public Deadlines createCopy() {
+      return new Deadlines(this);
+    }
+  }
+
+  /**
+   * Enforces {@link Deadlines} on every statement of a Jdbi, fluent or SqlObject. When a statement is prepared, the
+   * plugin schedules a call to {@link java.sql.Statement#cancel()} on the watchdog executor for when its deadline
+   * expires, and unschedules it as soon as the statement has executed. The deadline thus covers execution; once the
+   * driver has returned, a late cancel could only flag the connection and fail whatever statement runs on it next.
+   *
+   * <p>A cancelled statement fails with an {@code UnableToExecuteStatementException} in the thread that ran it; the
+   * handle stays usable, and closes as usual on the way out of {@code withHandle} or an on-demand SqlObject, which
+   * returns its connection to the pool. JDBC's own {@code setQueryTimeout} would do the same for drivers that support
+   * it, but at a granularity of seconds.
+   */
+  public static class DeadlinePlugin implements JdbiPlugin, StatementBuilderFactory {
+    private static final Set<String> EXECUTE_METHODS = new HashSet<>(Arrays.asList(
+        "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch"));
+
+    private final ScheduledExecutorService watchdog;
+    private final AtomicLong cancelled = new AtomicLong();
+
+    public DeadlinePlugin(ScheduledExecutorService watchdog) {
+      this.watchdog = watchdog;
+      if (watchdog instanceof ScheduledThreadPoolExecutor) {
+        // Most statements finish in time; don't keep their cancelled watchdog tasks queued until they would have run.
+        ((ScheduledThreadPoolExecutor) watchdog).setRemoveOnCancelPolicy(true);
+      }
+    }
+
+    @Override
+    public void customizeJdbi(Jdbi jdbi) {
+      jdbi.setStatementBuilderFactory(this);
+    }
+
+    @Override
+    public StatementBuilder createStatementBuilder(Connection conn) {
+      return new DefaultStatementBuilder() {
+        @Override
+        public PreparedStatement create(Connection conn, String sql, StatementContext ctx) throws SQLException {
+          PreparedStatement stmt = super.create(conn, sql, ctx);
+          Duration timeout = ctx.getConfig(Deadlines.class).getTimeout();
+          if (timeout == null) {
+            return stmt;
+          }
+          Watch watch = new Watch(stmt);
+          watch.task = watchdog.schedule(watch::expire, timeout.toNanos(), TimeUnit.NANOSECONDS);
+          ctx.addCleanable(watch::finish);
+          return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                                                            new Class<?>[] {PreparedStatement.class},
+                                                            watch);
+        }
+      };
+    }
+
+    /**
+     * How many running statements the watchdog has cancelled.
+     */
+    public long getCancelled() {
+      return cancelled.get();
+    }
+
+    /**
+     * Watches one statement through its deadline. The statement is {@code IDLE} except while a call to execute it is
+     * in progress; the watchdog moves it to {@code EXPIRED} for good, and calls {@code cancel()} only if it caught the
+     * statement {@code EXECUTING}. The check and the cancel happen under the same lock as the move back to
+     * {@code IDLE}, so {@code cancel()} is only ever called before the execute call returns to its caller. The driver
+     * may have finished by then; H2, like most drivers, ignores a cancel once it no longer runs the statement. A
+     * statement whose deadline passed while it was idle fails on its next execution without reaching the driver.
+     */
+    private class Watch implements InvocationHandler {
+      private static final int IDLE = 0;
+      private static final int EXECUTING = 1;
+      private static final int EXPIRED = 2;
+
+      private final PreparedStatement stmt;
+      private int state = IDLE;
+      private volatile ScheduledFuture<?> task;
+
+      Watch(PreparedStatement stmt) {
+        this.stmt = stmt;
+      }
+
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (!EXECUTE_METHODS.contains(method.getName())) {
+          return invokeOnStatement(method, args);
+        }
+        synchronized (this) {
+          if (state != IDLE) {
+            throw new SQLException("Statement was canceled: its deadline passed before it was executed");
+          }
+          state = EXECUTING;
+        }
+        try {
+          return invokeOnStatement(method, args);
+        }
+        catch (SQLException e) {
+          synchronized (this) {
+            if (state == EXPIRED) {
+              cancelled.incrementAndGet();
+            }
+          }
+          throw e;
+        }
+        finally {
+          synchronized (this) {
+            if (state == EXECUTING) {
+              state = IDLE;
+            }
+          }
+        }
+      }
+
+      synchronized void expire() {
+        boolean executing = state == EXECUTING;
+        state = EXPIRED;
+        if (executing) {
+          try {
+            stmt.cancel();
+          }
+          catch (SQLException e) {
+            // The statement was closed while the watchdog was getting to it.
+          }
+        }
+      }
+
+      void finish() {
+        task.cancel(false);
+      }
+
+      private Object invokeOnStatement(Method method, Object[] args) throws Throwable {
+        try {
+          return method.invoke(stmt, args);
+        }
+        catch (InvocationTargetException e) {
+          throw e.getCause();
+        }
+      }
+    }
+  }
+}
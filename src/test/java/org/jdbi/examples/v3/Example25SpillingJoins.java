@@ -0,0 +1,542 @@
+package org.jdbi.examples.v3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.MOBILE;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.WORK;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.v3.Example06Joins.Contact;
+import org.jdbi.examples.v3.Example06Joins.ContactDao;
+import org.jdbi.examples.v3.Example06Joins.Phone;
+import org.jdbi.examples.v3.Example06Joins.PhoneType;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.mapper.reflect.ConstructorMapper;
+import org.jdbi.v3.core.statement.PreparedBatch;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class Example25SpillingJoins {
+  private static final int CONTACTS = 2_000;
+  private static final long MAX_BUFFERED_BYTES = 64 * 1024;
+
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  @Rule
+  public TemporaryFolder spillDirectory = new TemporaryFolder();
+
+  public interface SpillingContactDao extends ContactDao {
+    /**
+     * Like {@link ContactDao#listFullContacts()}, but without holding every contact in memory, and with the join in
+     * newest phone first order, as a phone report would have it. The rows of each contact are scattered across the
+     * result, rather than next to each other. The caller must close the returned reducer once done iterating it.
+     */
+    default SpillingContactReducer reduceFullContacts(Path spillDirectory, long maxBufferedBytes) {
+      return reduceFullContacts(new SpillingContactReducer(spillDirectory, maxBufferedBytes));
+    }
+
+    /**
+     * Adds every row of the join to the given reducer and returns it. If the query fails, the reducer is closed, so
+     * that the runs it already spilled are deleted.
+     */
+    default SpillingContactReducer reduceFullContacts(SpillingContactReducer reducer) {
+      try {
+        return getHandle().createQuery("select c.id c_id, c.name c_name, "
+                                           + "p.id p_id, p.type p_type, p.phone p_phone "
+                                           + "from contacts c left join phones p on c.id = p.contactId "
+                                           + "order by p.id desc")
+            .registerRowMapper(ConstructorMapper.factory(Contact.class, "c_"))
+            .registerRowMapper(ConstructorMapper.factory(Phone.class, "p_"))
+            .reduceRows(reducer, (r, rowView) -> {
+              Phone phone = rowView.getColumn("p_id", Integer.class) == null ? null : rowView.getRow(Phone.class);
+              r.add(rowView.getRow(Contact.class), phone);
+              return r;
+            });
+      }
+      catch (RuntimeException | Error e) {
+        try {
+          reducer.close();
+        }
+        catch (RuntimeException suppressed) {
+          e.addSuppressed(suppressed);
+        }
+        throw e;
+      }
+    }
+  }
+
+  @Test
+  public void test() throws Exception {
+    Jdbi jdbi = Jdbi.create(ds.getDataSource());
+    jdbi.installPlugin(new SqlObjectPlugin());
+
+    jdbi.useHandle(h -> {
+      ContactDao dao = h.attach(ContactDao.class);
+      dao.createContactTable();
+      dao.createPhoneTable();
+
+      // Every tenth contact has no phone, and must still come out of the left join.
+      PreparedBatch contacts = h.prepareBatch("insert into contacts (id, name) values (:id, :name)");
+      PreparedBatch phones = h.prepareBatch("insert into phones (id, contactId, type, phone) "
+                                                + "values (:id, :contactId, :type, :phone)");
+      for (int id = 0; id < CONTACTS; id++) {
+        contacts.bind("id", id).bind("name", "Contact " + id).add();
+        if (isPhoneless(id)) {
+          continue;
+        }
+        phones.bind("id", id).bind("contactId", id).bind("type", WORK).bind("phone", "800-555-" + id).add();
+        phones.bind("id", CONTACTS + id).bind("contactId", id).bind("type", MOBILE).bind("phone", "801-555-" + id)
+            .add();
+      }
+      contacts.execute();
+      phones.execute();
+    });
+
+    Path directory = spillDirectory.getRoot().toPath();
+    try (SpillingContactReducer reducer = jdbi.withExtension(SpillingContactDao.class,
+        dao -> dao.reduceFullContacts(directory, MAX_BUFFERED_BYTES))) {
+      assertThat(reducer.getSpilledRuns()).isGreaterThan(SpillingContactReducer.DEFAULT_MAX_FAN_IN);
+      assertThat(reducer.getPeakBufferedBytes()).isLessThanOrEqualTo(MAX_BUFFERED_BYTES);
+      try (Stream<Path> runs = Files.list(directory)) {
+        assertThat(runs.count()).isEqualTo(reducer.getSpilledRuns());
+      }
+
+      // Parts of a contact from different runs are merged back together, in the order the rows were read. The mobile
+      // phones were all read before the work phones, so every contact with phones was split.
+      assertContacts(reducer.iterator());
+      assertThat(reducer.getMergedContacts()).isEqualTo(CONTACTS - CONTACTS / 10);
+    }
+
+    // With more runs than it may read at once, the reducer first merges them into fewer, longer runs.
+    try (SpillingContactReducer reducer = jdbi.withExtension(SpillingContactDao.class,
+        dao -> dao.reduceFullContacts(new SpillingContactReducer(directory, MAX_BUFFERED_BYTES, 3)))) {
+      Iterator<Contact> contacts = reducer.iterator();
+      try (Stream<Path> runs = Files.list(directory)) {
+        assertThat(runs.count()).isEqualTo(reducer.getSpilledRuns()).isLessThan(3);
+      }
+      assertContacts(contacts);
+    }
+
+    try (Stream<Path> runs = Files.list(directory)) {
+      assertThat(runs.count()).isZero();
+    }
+
+    // Below the threshold nothing touches the disk.
+    try (SpillingContactReducer reducer = jdbi.withExtension(SpillingContactDao.class,
+        dao -> dao.reduceFullContacts(directory, Long.MAX_VALUE))) {
+      assertThat(reducer.getSpilledRuns()).isZero();
+      assertThat(reducer).hasSize(CONTACTS);
+    }
+
+    // A query that fails after some runs were spilled leaves none of them behind.
+    SpillingContactReducer failing = new SpillingContactReducer(directory, MAX_BUFFERED_BYTES) {
+      @Override
+      public void add(Contact contact, Phone phone) {
+        if (getSpilledRuns() > 1) {
+          throw new IllegalStateException("Reducer failed");
+        }
+        super.add(contact, phone);
+      }
+    };
+    assertThatThrownBy(() -> jdbi.withExtension(SpillingContactDao.class, dao -> dao.reduceFullContacts(failing)))
+        .hasMessageContaining("Reducer failed");
+    assertThat(failing.getSpilledRuns()).isZero();
+    try (Stream<Path> runs = Files.list(directory)) {
+      assertThat(runs.count()).isZero();
+    }
+  }
+
+  private static boolean isPhoneless(int id) {
+    return id % 10 == 9;
+  }
+
+  private static void assertContacts(Iterator<Contact> contacts) {
+    int expectedId = 0;
+    while (contacts.hasNext()) {
+      Contact contact = contacts.next();
+      int id = expectedId++;
+      assertThat(contact)
+          .extracting(Contact::getId, Contact::getName)
+          .containsExactly(id, "Contact " + id);
+      if (isPhoneless(id)) {
+        assertThat(contact.getPhones()).isEmpty();
+      }
+      else {
+        assertThat(contact.getPhones())
+            .extracting(Phone::getId, Phone::getType, Phone::getPhone)
+            .containsExactly(tuple(CONTACTS + id, MOBILE, "801-555-" + id),
+                             tuple(id, WORK, "800-555-" + id));
+      }
+    }
+    assertThat(expectedId).isEqualTo(CONTACTS);
+  }
+
+  /**
+   * Groups joined contact and phone rows into contacts, in bounded memory and in any row order.
+   *
+   * <p>Partial contacts are kept in memory, sorted by id, until their estimated size passes the threshold. They are
+   * then written to a temporary file as a sorted run, and the reducer starts over with an empty buffer. The iterator
+   * merges all runs, and whatever is still buffered, by contact id, putting the parts of each contact back together as
+   * it goes; so it holds one partial contact and one open file per run, not every contact. Contacts come out in order
+   * of their id. To keep within {@code maxFanIn} open runs, the iterator first merges the oldest runs into one run
+   * on disk, as many times as it takes.
+   *
+   * <p>A run is a sequence of contacts, each written as its id, its name, its number of phones and then each phone's
+   * id, type and number, with {@link DataOutputStream}. Strings are written as modified UTF-8 after a flag byte that
+   * tells them from null; a phone type as its ordinal, or -1 for null.
+   *
+   * <p>Not thread safe. {@link #iterator()} may only be called once, after the last row was added; {@link #close()}
+   * deletes the runs.
+   */
+  public static class SpillingContactReducer implements Iterable<Contact>, AutoCloseable {
+    // Rough heap footprint of the objects behind a buffered contact or phone, not counting their strings.
+    private static final int CONTACT_OVERHEAD = 128;
+    private static final int PHONE_OVERHEAD = 48;
+    private static final PhoneType[] PHONE_TYPES = PhoneType.values();
+    static final int DEFAULT_MAX_FAN_IN = 16;
+
+    private final Path directory;
+    private final long maxBufferedBytes;
+    private final int maxFanIn;
+    private final TreeMap<Integer, Contact> buffer = new TreeMap<>();
+    private final List<Path> runs = new ArrayList<>();
+    private final List<DataInputStream> openRuns = new ArrayList<>();
+    private long bufferedBytes;
+    private long peakBufferedBytes;
+    private int mergedContacts;
+    private boolean iterated;
+
+    public SpillingContactReducer(Path directory, long maxBufferedBytes) {
+      this(directory, maxBufferedBytes, DEFAULT_MAX_FAN_IN);
+    }
+
+    /**
+     * @param maxFanIn the most runs iteration may read at once, counting the in-memory buffer as one; at least 2
+     */
+    public SpillingContactReducer(Path directory, long maxBufferedBytes, int maxFanIn) {
+      if (maxFanIn < 2) {
+        throw new IllegalArgumentException("maxFanIn must be at least 2: " + maxFanIn);
+      }
+      this.directory = directory;
+      this.maxBufferedBytes = maxBufferedBytes;
+      this.maxFanIn = maxFanIn;
+    }
+
+    /**
+     * Adds one row of the join: a contact, and one of its phones or null.
+     */
+    public void add(Contact contact, Phone phone) {
+      if (iterated) {
+        throw new IllegalStateException("Rows can't be added once iteration has started");
+      }
+
+      long phoneSize = phone == null ? 0 : sizeOf(phone);
+      Contact partial = buffer.get(contact.getId());
+      long size = partial == null ? sizeOf(contact) + phoneSize : phoneSize;
+      if (bufferedBytes + size > maxBufferedBytes && !buffer.isEmpty()) {
+        // The rest of a contact already spilled goes into a new partial contact, merged with the first on the way out.
+        spill();
+        partial = null;
+        size = sizeOf(contact) + phoneSize;
+      }
+      if (partial == null) {
+        partial = new Contact(contact.getId(), contact.getName());
+        buffer.put(partial.getId(), partial);
+      }
+      if (phone != null) {
+        partial.addPhone(phone);
+      }
+
+      bufferedBytes += size;
+      peakBufferedBytes = Math.max(peakBufferedBytes, bufferedBytes);
+    }
+
+    /**
+     * How many runs have been written to disk so far.
+     */
+    public int getSpilledRuns() {
+      return runs.size();
+    }
+
+    /**
+     * The highest estimated size of the in-memory buffer so far, in bytes.
+     */
+    public long getPeakBufferedBytes() {
+      return peakBufferedBytes;
+    }
+
+    /**
+     * How many times so far parts of a contact from different runs were put back together, by the iterator or while
+     * merging runs into longer runs.
+     */
+    public int getMergedContacts() {
+      return mergedContacts;
+    }
+
+    @Override
+    public Iterator<Contact> iterator() {
+      if (iterated) {
+        throw new IllegalStateException("A spilling reducer can only be iterated once");
+      }
+      iterated = true;
+
+      while (runs.size() >= maxFanIn) {
+        mergeOldestRuns();
+      }
+
+      List<Iterator<Contact>> sources = new ArrayList<>();
+      for (Path run : runs) {
+        sources.add(readRun(run));
+      }
+      sources.add(buffer.values().iterator());
+      return new MergingIterator(sources, () -> mergedContacts++);
+    }
+
+    @Override
+    public void close() {
+      buffer.clear();
+      UncheckedIOException failure = null;
+      for (DataInputStream in : openRuns) {
+        try {
+          in.close();
+        }
+        catch (IOException e) {
+          failure = new UncheckedIOException(e);
+        }
+      }
+      openRuns.clear();
+      for (Path run : runs) {
+        try {
+          Files.deleteIfExists(run);
+        }
+        catch (IOException e) {
+          failure = new UncheckedIOException(e);
+        }
+      }
+      runs.clear();
+      if (failure != null) {
+        throw failure;
+      }
+    }
+
+    private static long sizeOf(Contact contact) {
+      return CONTACT_OVERHEAD + sizeOf(contact.getName());
+    }
+
+    private static long sizeOf(Phone phone) {
+      return PHONE_OVERHEAD + sizeOf(phone.getPhone());
+    }
+
+    private static long sizeOf(String string) {
+      return string == null ? 0 : 40 + 2L * string.length();
+    }
+
+    private void spill() {
+      try {
+        Path run = Files.createTempFile(directory, "contacts-", ".run");
+        runs.add(run);
+        writeRun(run, buffer.values().iterator());
+      }
+      catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      buffer.clear();
+      bufferedBytes = 0;
+    }
+
+    /**
+     * Replaces the {@code maxFanIn} oldest runs with one run holding their contacts. Ties in the merge go to the older
+     * run, and the merged run takes the place of the oldest, so phones stay in the order they were added.
+     */
+    private void mergeOldestRuns() {
+      try {
+        Path merged = Files.createTempFile(directory, "contacts-", ".run");
+        runs.add(0, merged);
+        List<Path> oldest = runs.subList(1, 1 + maxFanIn);
+
+        List<Iterator<Contact>> sources = new ArrayList<>();
+        for (Path run : oldest) {
+          sources.add(readRun(run));
+        }
+        writeRun(merged, new MergingIterator(sources, () -> mergedContacts++));
+
+        for (DataInputStream in : openRuns) {
+          in.close();
+        }
+        openRuns.clear();
+        for (Path run : oldest) {
+          Files.delete(run);
+        }
+        oldest.clear();
+      }
+      catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private static void writeRun(Path run, Iterator<Contact> contacts) throws IOException {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+        while (contacts.hasNext()) {
+          Contact contact = contacts.next();
+          out.writeInt(contact.getId());
+          writeString(out, contact.getName());
+          out.writeInt(contact.getPhones().size());
+          for (Phone phone : contact.getPhones()) {
+            out.writeInt(phone.getId());
+            out.writeByte(phone.getType() == null ? -1 : phone.getType().ordinal());
+            writeString(out, phone.getPhone());
+          }
+        }
+      }
+    }
+
+    private Iterator<Contact> readRun(Path run) {
+      DataInputStream in;
+      try {
+        in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run)));
+      }
+      catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      openRuns.add(in);
+
+      return new Iterator<Contact>() {
+        private Contact next = read();
+
+        @Override
+        public boolean hasNext() {
+          return next != null;
+        }
+
+        @Override
+        public Contact next() {
+          if (next == null) {
+            throw new NoSuchElementException();
+          }
+          Contact contact = next;
+          next = read();
+          return contact;
+        }
+
+        private Contact read() {
+          try {
+            int id;
+            try {
+              id = in.readInt();
+            }
+            catch (EOFException e) {
+              in.close();
+              return null;
+            }
+            Contact contact = new Contact(id, readString(in));
+            for (int phones = in.readInt(); phones > 0; phones--) {
+              int phoneId = in.readInt();
+              byte type = in.readByte();
+              contact.addPhone(new Phone(phoneId, type == -1 ? null : PHONE_TYPES[type], readString(in)));
+            }
+            return contact;
+          }
+          catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+      };
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+      out.writeBoolean(string != null);
+      if (string != null) {
+        out.writeUTF(string);
+      }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+      return in.readBoolean() ? in.readUTF() : null;
+    }
+  }
+
+  /**
+   * Merges sources of contacts sorted by id into one, combining the phones of contacts that appear in more than one
+   * source. Ties go to the earlier source, so phones stay in the order they were added. Runs {@code onMerge} for each
+   * contact combined from more than one source.
+   */
+  private static class MergingIterator implements Iterator<Contact> {
+    private final PriorityQueue<Head> heads = new PriorityQueue<>(
+        Comparator.comparingInt((Head head) -> head.contact.getId()).thenComparingInt(head -> head.source));
+    private final Runnable onMerge;
+
+    MergingIterator(List<Iterator<Contact>> sources, Runnable onMerge) {
+      this.onMerge = onMerge;
+      for (int i = 0; i < sources.size(); i++) {
+        advance(new Head(i, sources.get(i)));
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !heads.isEmpty();
+    }
+
+    @Override
+    public Contact next() {
+      Head head = heads.poll();
+      if (head == null) {
+        throw new NoSuchElementException();
+      }
+      Contact contact = head.contact;
+      advance(head);
+
+      boolean merged = false;
+      while (!heads.isEmpty() && heads.peek().contact.getId() == contact.getId()) {
+        Head part = heads.poll();
+        part.contact.getPhones().forEach(contact::addPhone);
+        advance(part);
+        merged = true;
+      }
+      if (merged) {
+        onMerge.run();
+      }
+      return contact;
+    }
+
+    private void advance(Head head) {
+      if (head.contacts.hasNext()) {
+        head.contact = head.contacts.next();
+        heads.add(head);
+      }
+    }
+
+    private static class Head {
+      final int source;
+      final Iterator<Contact> contacts;
+      Contact contact;
+
+      Head(int source, Iterator<Contact> contacts) {
+        this.source = source;
+        this.contacts = contacts;
+      }
+    }
+  }
+}
@@ -0,0 +1,385 @@
+package org.jdbi.examples.v3;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.WORK;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.rule.Timings;
+import org.jdbi.examples.v3.Example06Joins.Contact;
+import org.jdbi.examples.v3.Example06Joins.ContactDao;
+import org.jdbi.examples.v3.Example06Joins.Phone;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.config.JdbiConfig;
+import org.jdbi.v3.core.extension.HandleSupplier;
+import org.jdbi.v3.sqlobject.Handler;
+import org.jdbi.v3.sqlobject.HandlerDecorator;
+import org.jdbi.v3.sqlobject.SqlMethodDecoratingAnnotation;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.jdbi.v3.sqlobject.customizer.BindBean;
+import org.jdbi.v3.sqlobject.statement.BatchChunkSize;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example26AdaptiveBatches {
+  // A million rows (-Dbatch.rows=1000000) makes for a better benchmark, but takes half a minute.
+  private static final int ROWS = Integer.getInteger("batch.rows", 100_000);
+  private static final int[] FIXED_CHUNK_SIZES = {10, 1_000, 100_000};
+
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  public interface AdaptiveContactDao extends ContactDao {
+    @Override
+    @AdaptiveBatch(min = 100, max = 100_000, targetMillis = 20)
+    @SqlBatch("INSERT INTO phones (id, contactId, type, phone) VALUES (:id, :contactId, :type, :phone)")
+    void insertPhones(@BindBean List<Phone> phones, int contactId);
+
+    @AdaptiveBatch(min = 100, max = 100_000, targetMillis = 20)
+    @SqlBatch("INSERT INTO phones (id, contactId, type, phone) VALUES (:id, :contactId, :type, :phone)")
+    int[] insertAllPhones(@BindBean Iterable<Phone> phones, int contactId);
+
+    @SqlBatch("INSERT INTO phones (id, contactId, type, phone) VALUES (:id, :contactId, :type, :phone)")
+    void insertPhonesInChunks(@BindBean Iterable<Phone> phones, int contactId, @BatchChunkSize int chunkSize);
+
+    @SqlUpdate("truncate table phones")
+    void truncatePhones();
+  }
+
+  @Test
+  public void test() throws Exception {
+    Jdbi jdbi = Jdbi.create(ds.getDataSource());
+    jdbi.installPlugin(new SqlObjectPlugin());
+
+    List<BatchChunk> chunks = new CopyOnWriteArrayList<>();
+    jdbi.getConfig(AdaptiveBatching.class).setListener(chunks::add);
+
+    AdaptiveContactDao dao = jdbi.onDemand(AdaptiveContactDao.class);
+    dao.createContactTable();
+    dao.createPhoneTable();
+
+    // Small batches go out in one chunk, as before.
+    dao.insertFullContact(Contact.create(1, "Alice",
+                                         new Phone(2, WORK, "800-555-1234"),
+                                         new Phone(3, WORK, "800-555-1235")));
+    assertThat(chunks).extracting(BatchChunk::getMethod, BatchChunk::getRows)
+        .containsExactly(tuple("AdaptiveContactDao.insertPhones", 2));
+    assertThat(dao.listFullContacts().get(0).getPhones()).extracting(Phone::getId).containsExactly(2, 3);
+    dao.truncatePhones();
+
+    // Large ones are streamed in chunks that home in on the target latency, and every row is accounted for.
+    chunks.clear();
+    int[] updateCounts = dao.insertAllPhones(phones(0, ROWS), 1);
+    assertThat(updateCounts).hasSize(ROWS).containsOnly(1);
+    assertThat(chunks).extracting(BatchChunk::getRows).allMatch(rows -> rows >= 1 && rows <= 100_000);
+    assertThat(chunks.stream().mapToInt(BatchChunk::getRows).sum()).isEqualTo(ROWS);
+    assertThat(chunks.get(0).getRows()).isEqualTo(AdaptiveBatch.DEFAULT_INITIAL);
+    assertThat(chunks.stream().mapToInt(BatchChunk::getNextChunkSize).max().getAsInt())
+        .isGreaterThan(AdaptiveBatch.DEFAULT_INITIAL);
+    assertThat(countPhones(jdbi)).isEqualTo(ROWS);
+
+    // Compare against fixed chunk sizes on the same insert.
+    long adaptive = timeInsert(dao, () -> dao.insertAllPhones(phones(0, ROWS), 1));
+    long[] fixed = new long[FIXED_CHUNK_SIZES.length];
+    for (int i = 0; i < FIXED_CHUNK_SIZES.length; i++) {
+      int chunkSize = FIXED_CHUNK_SIZES[i];
+      fixed[i] = timeInsert(dao, () -> dao.insertPhonesInChunks(phones(0, ROWS), 1, chunkSize));
+    }
+    long bestFixed = Arrays.stream(fixed).min().getAsLong();
+    if (Timings.isAsserted()) {
+      assertThat(adaptive)
+          .as("%d rows: adaptive %dms, fixed %s: %sms", ROWS, adaptive / 1_000_000,
+              Arrays.toString(FIXED_CHUNK_SIZES),
+              Arrays.toString(Arrays.stream(fixed).map(nanos -> nanos / 1_000_000).toArray()))
+          .isLessThan(bestFixed * 2);
+    }
+  }
+
+  /**
+   * Phones made up as they are iterated, so that only the chunk being sent is ever in memory.
+   */
+  private static Iterable<Phone> phones(int firstId, int count) {
+    return () -> IntStream.range(firstId, firstId + count)
+        .mapToObj(id -> new Phone(id, WORK, "800-555-" + id))
+        .iterator();
+  }
+
+  private static int countPhones(Jdbi jdbi) {
+    return jdbi.withHandle(h -> h.createQuery("select count(*) from phones").mapTo(int.class).findOnly());
+  }
+
+  private static long timeInsert(AdaptiveContactDao dao, Runnable insert) {
+    dao.truncatePhones();
+    long start = System.nanoTime();
+    insert.run();
+    return System.nanoTime() - start;
+  }
+
+  /**
+   * Sends the batch of a {@link SqlBatch} method in chunks, sized to take about {@link #targetMillis()} each. Chunk
+   * sizes start at {@link #initial()} and stay within {@link #min()} and {@link #max()}; only the last chunk of a call
+   * may be smaller than {@code min}.
+   *
+   * <p>Every iterable or array argument is split into chunks in step, and the method's handler runs once per chunk, so
+   * that arguments passed as lazy iterables are only ever held a chunk at a time. All chunks of a call run in one
+   * transaction unless the {@code SqlBatch} is declared non-transactional. The method must return {@code void} or
+   * {@code int[]}.
+   */
+  @Retention(RUNTIME)
+  @Target(METHOD)
+  @SqlMethodDecoratingAnnotation(AdaptiveBatchDecorator.class)
+  public @interface AdaptiveBatch {
+    int DEFAULT_INITIAL = 1_000;
+
+    int min() default 10;
+
+    int max() default 10_000;
+
+    int initial() default DEFAULT_INITIAL;
+
+    long targetMillis() default 50;
+  }
+
+  /**
+   * Where {@link AdaptiveBatch} methods report their chunks; nowhere by default.
+   */
+  public static class AdaptiveBatching implements JdbiConfig<AdaptiveBatching> {
+    private Consumer<BatchChunk> listener = chunk -> {
+    };
+
+    public AdaptiveBatching() {
+    }
+
+    private AdaptiveBatching(AdaptiveBatching that) {
+      this.listener = that.listener;
+    }
+
+    public Consumer<BatchChunk> getListener() {
+      return listener;
+    }
+
+    public AdaptiveBatching setListener(Consumer<BatchChunk> listener) {
+      this.listener = listener;
+      return this;
+    }
+
+    @Override
+    public AdaptiveBatching createCopy() {
+      return new AdaptiveBatching(this);
+    }
+  }
+
+  /**
+   * One chunk sent by an {@link AdaptiveBatch} method.
+   */
+  public static class BatchChunk {
+    private final String method;
+    private final int rows;
+    private final long elapsedNanos;
+    private final int nextChunkSize;
+
+    public BatchChunk(String method, int rows, long elapsedNanos, int nextChunkSize) {
+      this.method = method;
+      this.rows = rows;
+      this.elapsedNanos = elapsedNanos;
+      this.nextChunkSize = nextChunkSize;
+    }
+
+    /**
+     * The method, as {@code SimpleTypeName.methodName} of the SqlObject type it was called on.
+     */
+    public String getMethod() {
+      return method;
+    }
+
+    public int getRows() {
+      return rows;
+    }
+
+    public Duration getElapsed() {
+      return Duration.ofNanos(elapsedNanos);
+    }
+
+    public double getRowsPerSecond() {
+      return rows * 1e9 / Math.max(elapsedNanos, 1);
+    }
+
+    /**
+     * The chunk size the method settled on after this chunk, for its next one.
+     */
+    public int getNextChunkSize() {
+      return nextChunkSize;
+    }
+
+    @Override
+    public String toString() {
+      return method + ": " + rows + " rows in " + getElapsed().toMillis() + "ms, next " + nextChunkSize;
+    }
+  }
+
+  /**
+   * Picks chunk sizes for one method. Keeps a moving average of the throughput seen so far, and sizes the next chunk
+   * to take the target latency at that throughput, so a slower database or wider rows shrink the chunks and a faster
+   * one grows them. Chunk sizes change by at most a factor of two at a time, so one outlier can't swing them far.
+   */
+  static class ChunkSizer {
+    private static final double SMOOTHING = 0.3;
+
+    private final int min;
+    private final int max;
+    private final long targetNanos;
+    private int size;
+    private double rowsPerNano;
+
+    ChunkSizer(AdaptiveBatch settings) {
+      if (settings.min() < 1 || settings.max() < settings.min()) {
+        throw new IllegalArgumentException("Expected 1 <= min <= max but got " + settings);
+      }
+      this.min = settings.min();
+      this.max = settings.max();
+      this.targetNanos = settings.targetMillis() * 1_000_000;
+      this.size = Math.max(min, Math.min(max, settings.initial()));
+    }
+
+    synchronized int nextChunkSize() {
+      return size;
+    }
+
+    synchronized int record(int rows, long elapsedNanos) {
+      double observed = (double) rows / Math.max(elapsedNanos, 1);
+      rowsPerNano = rowsPerNano == 0 ? observed : SMOOTHING * observed + (1 - SMOOTHING) * rowsPerNano;
+
+      // Only a full chunk says something about the current size; the tail of a batch may be much smaller.
+      if (rows >= size) {
+        long ideal = (long) (rowsPerNano * targetNanos);
+        long bounded = Math.max(size / 2, Math.min((long) size * 2, ideal));
+        size = (int) Math.max(min, Math.min(max, bounded));
+      }
+      return size;
+    }
+  }
+
+  public static class AdaptiveBatchDecorator implements HandlerDecorator {
+    @Override
+    public Handler decorateHandler(Handler base, Class<?> sqlObjectType, Method method) {
+      SqlBatch sqlBatch = method.getAnnotation(SqlBatch.class);
+      if (sqlBatch == null) {
+        throw new IllegalArgumentException("@AdaptiveBatch requires @SqlBatch on " + method);
+      }
+      if (method.getReturnType() != void.class && method.getReturnType() != int[].class) {
+        throw new IllegalArgumentException("@AdaptiveBatch methods must return void or int[]: " + method);
+      }
+
+      ChunkSizer sizer = new ChunkSizer(method.getAnnotation(AdaptiveBatch.class));
+      String name = sqlObjectType.getSimpleName() + "." + method.getName();
+      boolean returnsCounts = method.getReturnType() == int[].class;
+
+      return (target, args, handle) -> {
+        Consumer<BatchChunk> listener = handle.getConfig(AdaptiveBatching.class).getListener();
+        Handle h = handle.getHandle();
+        if (!sqlBatch.transactional() || h.isInTransaction()) {
+          return invokeInChunks(base, target, args, handle, sizer, name, listener, returnsCounts);
+        }
+        return h.inTransaction(
+            transaction -> invokeInChunks(base, target, args, handle, sizer, name, listener, returnsCounts));
+      };
+    }
+
+    private static Object invokeInChunks(Handler base, Object target, Object[] args, HandleSupplier handle,
+                                         ChunkSizer sizer, String name, Consumer<BatchChunk> listener,
+                                         boolean returnsCounts)
+        throws Exception {
+      Iterator<?>[] iterators = new Iterator<?>[args.length];
+      boolean chunkable = false;
+      for (int i = 0; i < args.length; i++) {
+        iterators[i] = iteratorOf(args[i]);
+        chunkable |= iterators[i] != null;
+      }
+      if (!chunkable) {
+        return base.invoke(target, args, handle);
+      }
+
+      IntArrayBuilder counts = returnsCounts ? new IntArrayBuilder() : null;
+      boolean more = true;
+      while (more) {
+        int chunkSize = sizer.nextChunkSize();
+        Object[] chunkArgs = args.clone();
+        int rows = Integer.MAX_VALUE;
+        for (int i = 0; i < args.length; i++) {
+          if (iterators[i] != null) {
+            List<Object> chunk = new ArrayList<>(Math.min(chunkSize, 1024));
+            while (chunk.size() < chunkSize && iterators[i].hasNext()) {
+              chunk.add(iterators[i].next());
+            }
+            chunkArgs[i] = chunk;
+            rows = Math.min(rows, chunk.size());
+          }
+        }
+        if (rows == 0) {
+          break;
+        }
+
+        long start = System.nanoTime();
+        Object result = base.invoke(target, chunkArgs, handle);
+        long elapsed = System.nanoTime() - start;
+
+        int next = sizer.record(rows, elapsed);
+        listener.accept(new BatchChunk(name, rows, elapsed, next));
+        if (counts != null) {
+          counts.addAll((int[]) result);
+        }
+        more = rows == chunkSize;
+      }
+      return counts == null ? null : counts.toArray();
+    }
+
+    private static Iterator<?> iteratorOf(Object arg) {
+      if (arg instanceof Iterable) {
+        return ((Iterable<?>) arg).iterator();
+      }
+      if (arg instanceof Iterator) {
+        return (Iterator<?>) arg;
+      }
+      if (arg != null && arg.getClass().isArray()) {
+        int length = Array.getLength(arg);
+        return IntStream.range(0, length).mapToObj(i -> Array.get(arg, i)).iterator();
+      }
+      return null;
+    }
+  }
+
+  private static class IntArrayBuilder {
+    private int[] values = new int[16];
+    private int size;
+
+    void addAll(int[] more) {
+      if (size + more.length > values.length) {
+        values = Arrays.copyOf(values, Math.max(values.length * 2, size + more.length));
+      }
+      System.arraycopy(more, 0, values, size, more.length);
+      size += more.length;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+}
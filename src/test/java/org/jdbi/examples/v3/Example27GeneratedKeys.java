@@ -0,0 +1,207 @@
+package org.jdbi.examples.v3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.rule.Timings;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import org.jdbi.v3.sqlobject.transaction.Transaction;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example27GeneratedKeys {
+  private static final int ROWS_PER_OPERATION = 200;
+
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  /**
+   * Contacts whose ids are assigned by the database, either by an identity column or from a sequence.
+   */
+  public interface KeyedContactDao {
+    @SqlUpdate("create table contacts (id int auto_increment primary key, name varchar(100))")
+    void createContactTable();
+
+    @SqlUpdate("create table sequenced_contacts (id int primary key, name varchar(100))")
+    void createSequencedContactTable();
+
+    @SqlUpdate("create sequence contact_ids increment by :blockSize")
+    void createContactIdSequence(int blockSize);
+
+    @SqlUpdate("insert into contacts (name) values (:name)")
+    @GetGeneratedKeys("id")
+    int insert(String name);
+
+    @SqlBatch("insert into contacts (name) values (:name)")
+    @GetGeneratedKeys("id")
+    int[] insertAllReportingKeys(@Bind("name") List<String> names);
+
+    /**
+     * Inserts a batch of contacts and returns their generated ids, in order.
+     *
+     * <p>The JDBC driver of H2 1.3 only reports the key of the last row of a batch. This method runs the batch in a
+     * transaction, during which H2 keeps other writers off the table, so the ids of the batch are the ones leading up
+     * to that key. With a driver that reports a key per row, the keys are passed on as they are.
+     */
+    @Transaction
+    default int[] insertAll(List<String> names) {
+      if (names.isEmpty()) {
+        return new int[0];
+      }
+      int[] keys = insertAllReportingKeys(names);
+      if (keys.length == names.size()) {
+        return keys;
+      }
+      if (keys.length != 1) {
+        throw new IllegalStateException("Expected " + names.size() + " generated keys, or just the last one, but got "
+                                            + keys.length);
+      }
+      // Only sound with H2 1.3's default table locks, where the transaction keeps every other writer off the table
+      // until it ends. Under MVCC or MV_STORE, concurrent inserts could take ids in between, and the ids derived here
+      // would belong to other rows.
+      int last = keys[0];
+      return IntStream.rangeClosed(last - names.size() + 1, last).toArray();
+    }
+
+    @SqlBatch("insert into sequenced_contacts (id, name) values (:id, :name)")
+    void insertAllWithIds(@Bind("id") int[] ids, @Bind("name") List<String> names);
+
+    @SqlQuery("select name from contacts where id = :id")
+    String getName(int id);
+
+    @SqlQuery("select name from sequenced_contacts where id = :id")
+    String getSequencedName(int id);
+  }
+
+  @Test
+  public void test() throws Exception {
+    Jdbi jdbi = Jdbi.create(ds.getDataSource());
+    jdbi.installPlugin(new SqlObjectPlugin());
+
+    KeyedContactDao dao = jdbi.onDemand(KeyedContactDao.class);
+    dao.createContactTable();
+    dao.createSequencedContactTable();
+    dao.createContactIdSequence(100);
+
+    // Identity columns hand back the keys of single rows...
+    int alice = dao.insert("Alice");
+    assertThat(dao.getName(alice)).isEqualTo("Alice");
+
+    // ...and of whole batches.
+    List<String> names = names("Contact", 250);
+    int[] keys = dao.insertAll(names);
+    assertThat(keys).hasSize(names.size());
+    assertThat(keys[0]).isEqualTo(alice + 1);
+    assertThat(keys[keys.length - 1]).isEqualTo(alice + names.size());
+    for (int i = 0; i < keys.length; i++) {
+      assertThat(dao.getName(keys[i])).isEqualTo(names.get(i));
+    }
+    assertThat(dao.insertAll(names("Nobody", 0))).isEmpty();
+
+    // A sequence allocated in blocks takes one round trip per block instead of one per row.
+    SequenceBlockIdAllocator allocator = new SequenceBlockIdAllocator(jdbi, "contact_ids", 100);
+    int[] ids = allocator.nextIds(250);
+    assertThat(allocator.getBlocksFetched()).isEqualTo(3);
+    assertThat(ids).doesNotHaveDuplicates().startsWith(1, 2, 3).endsWith(250);
+    assertThat(allocator.nextId()).isEqualTo(251);
+    assertThat(allocator.getBlocksFetched()).isEqualTo(3);
+    dao.insertAllWithIds(ids, names("Sequenced", 250));
+    assertThat(dao.getSequencedName(250)).isEqualTo("Sequenced 249");
+
+    // Compare inserts per second. Each operation inserts ROWS_PER_OPERATION contacts on one handle.
+    SequenceBlockIdAllocator blocks = new SequenceBlockIdAllocator(jdbi, "contact_ids", 100);
+    // Blocks smaller than the sequence's increment waste ids, but are as safe.
+    SequenceBlockIdAllocator unblocked = new SequenceBlockIdAllocator(jdbi, "contact_ids", 1);
+    List<String> batch = names("Timed", ROWS_PER_OPERATION);
+    long[] nanos = Timings.nanosPerOperation(
+        1,
+        () -> jdbi.useHandle(h -> {
+          KeyedContactDao attached = h.attach(KeyedContactDao.class);
+          batch.forEach(attached::insert);
+        }),
+        () -> jdbi.useHandle(h -> h.attach(KeyedContactDao.class).insertAll(batch)),
+        () -> jdbi.useHandle(h -> insertWithIds(h, blocks, batch)),
+        () -> jdbi.useHandle(h -> insertWithIds(h, unblocked, batch)));
+    String rates = String.format("inserts per second: identity row by row %d, identity batch %d, "
+                                     + "sequence blocks of 100 %d, sequence row by row %d",
+                                 perSecond(nanos[0]), perSecond(nanos[1]), perSecond(nanos[2]), perSecond(nanos[3]));
+
+    if (Timings.isAsserted()) {
+      assertThat(nanos[1]).as(rates).isLessThan(nanos[0]);
+      assertThat(nanos[2]).as(rates).isLessThan(nanos[3]);
+    }
+  }
+
+  private static void insertWithIds(Handle h, SequenceBlockIdAllocator allocator, List<String> names) {
+    h.attach(KeyedContactDao.class).insertAllWithIds(allocator.nextIds(names.size()), names);
+  }
+
+  private static List<String> names(String prefix, int count) {
+    return IntStream.range(0, count).mapToObj(i -> prefix + " " + i).collect(Collectors.toList());
+  }
+
+  private static long perSecond(long nanosPerOperation) {
+    return ROWS_PER_OPERATION * 1_000_000_000L / nanosPerOperation;
+  }
+
+  /**
+   * Hands out ids from a database sequence, fetching them a block at a time. The sequence must be created with an
+   * increment of at least the block size: each value it returns is then the first of a block nobody else will be
+   * given, so any number of allocators, in any number of processes, can share it.
+   *
+   * <p>Ids of a block that is only partly used when the allocator is dropped are lost, leaving gaps. Ids are unique,
+   * and increase within an allocator, but are not contiguous. Thread safe.
+   */
+  public static class SequenceBlockIdAllocator {
+    private final Jdbi jdbi;
+    private final String nextValueSql;
+    private final int blockSize;
+    private long next;
+    private long end;
+    private int blocksFetched;
+
+    public SequenceBlockIdAllocator(Jdbi jdbi, String sequence, int blockSize) {
+      if (blockSize < 1) {
+        throw new IllegalArgumentException("Block size must be positive, got " + blockSize);
+      }
+      this.jdbi = jdbi;
+      this.nextValueSql = "select nextval('" + sequence + "')";
+      this.blockSize = blockSize;
+    }
+
+    public synchronized int nextId() {
+      if (next == end) {
+        next = jdbi.withHandle(h -> h.createQuery(nextValueSql).mapTo(long.class).findOnly());
+        end = next + blockSize;
+        blocksFetched++;
+      }
+      return Math.toIntExact(next++);
+    }
+
+    public synchronized int[] nextIds(int count) {
+      int[] ids = new int[count];
+      for (int i = 0; i < count; i++) {
+        ids[i] = nextId();
+      }
+      return ids;
+    }
+
+    /**
+     * How many round trips to the sequence the allocator has made.
+     */
+    public synchronized int getBlocksFetched() {
+      return blocksFetched;
+    }
+  }
+}
@@ -0,0 +1,269 @@
+package org.jdbi.examples.v3;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.MOBILE;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.WORK;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.assertj.core.groups.Tuple;
+import org.jdbi.examples.rule.Allocations;
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.v3.Example06Joins.Contact;
+import org.jdbi.examples.v3.Example06Joins.ContactDao;
+import org.jdbi.examples.v3.Example06Joins.Phone;
+import org.jdbi.examples.v3.Example06Joins.PhoneType;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.mapper.reflect.ConstructorMapper;
+import org.jdbi.v3.core.statement.PreparedBatch;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example28CompactContacts {
+  private static final int CONTACTS = 20_000;
+
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  public interface CompactContactDao extends ContactDao {
+    /**
+     * Like {@link ContactDao#listFullContacts()}, but packs each contact as soon as its last row has been read. Rows
+     * of a contact must be adjacent, so the join is ordered by id as well as by name.
+     */
+    default List<CompactContact> listCompactContacts() {
+      return getHandle().createQuery("select c.id c_id, c.name c_name, "
+                                         + "p.id p_id, p.type p_type, p.phone p_phone "
+                                         + "from contacts c left join phones p on c.id = p.contactId "
+                                         + "order by c.name, c.id")
+          .registerRowMapper(ConstructorMapper.factory(Contact.class, "c_"))
+          .registerRowMapper(ConstructorMapper.factory(Phone.class, "p_"))
+          .reduceRows(new CompactContactAssembler(), (assembler, rowView) -> {
+            Contact contact = rowView.getRow(Contact.class);
+            Phone phone = rowView.getColumn("p_id", Integer.class) == null ? null : rowView.getRow(Phone.class);
+            assembler.add(contact.getId(), contact.getName(), phone);
+            return assembler;
+          })
+          .finish();
+    }
+  }
+
+  @Test
+  public void test() throws Exception {
+    Jdbi jdbi = Jdbi.create(ds.getDataSource());
+    jdbi.installPlugin(new SqlObjectPlugin());
+
+    jdbi.useHandle(h -> {
+      ContactDao dao = h.attach(ContactDao.class);
+      dao.createContactTable();
+      dao.createPhoneTable();
+
+      PreparedBatch contacts = h.prepareBatch("insert into contacts (id, name) values (:id, :name)");
+      PreparedBatch phones = h.prepareBatch("insert into phones (id, contactId, type, phone) "
+                                                + "values (:id, :contactId, :type, :phone)");
+      for (int id = 1; id <= CONTACTS; id++) {
+        contacts.bind("id", id).bind("name", String.format("Contact %05d", id)).add();
+        phones.bind("id", id * 2).bind("contactId", id).bind("type", WORK).bind("phone", "800-555-" + id).add();
+        phones.bind("id", id * 2 + 1).bind("contactId", id).bind("type", MOBILE).bind("phone", "801-555-" + id)
+            .add();
+      }
+      contacts.execute();
+      phones.execute();
+
+      dao.insertContact(new Contact(0, "Nobody"));
+      h.execute("update phones set type = null, phone = null where id = 3");
+    });
+
+    CompactContactDao dao = jdbi.onDemand(CompactContactDao.class);
+    assertSameContacts(dao.listFullContacts(), dao.listCompactContacts());
+
+    // H2 hands out the strings it keeps in its own in-memory tables, so names and numbers count for neither list here;
+    // what is left is the cost of the object graph holding them.
+    long retained = Allocations.bytesRetained(dao::listFullContacts) / (CONTACTS + 1);
+    long compactRetained = Allocations.bytesRetained(dao::listCompactContacts) / (CONTACTS + 1);
+    assertThat(compactRetained)
+        .as("Retained bytes per contact: %d as Contact, %d as CompactContact", retained, compactRetained)
+        .isLessThan(retained * 2 / 3);
+  }
+
+  /**
+   * Checks that both lists hold the same contacts, read through the same getters.
+   */
+  private static void assertSameContacts(List<Contact> contacts, List<CompactContact> compactContacts) {
+    assertThat(compactContacts.stream().map(c -> tuple(c.getId(), c.getName(), phoneTuples(c.getPhones())))
+                   .collect(toList()))
+        .isEqualTo(contacts.stream().map(c -> tuple(c.getId(), c.getName(), phoneTuples(c.getPhones())))
+                       .collect(toList()));
+
+    assertThat(compactContacts.get(0).getName()).isEqualTo("Contact 00001");
+    assertThat(compactContacts.get(0).getPhones())
+        .extracting(Phone::getId, Phone::getType, Phone::getPhone)
+        .containsExactly(tuple(2, WORK, "800-555-1"), tuple(3, null, null));
+    assertThat(compactContacts.get(CONTACTS).getName()).isEqualTo("Nobody");
+    assertThat(compactContacts.get(CONTACTS).getPhones()).isEmpty();
+  }
+
+  private static List<Tuple> phoneTuples(List<Phone> phones) {
+    return phones.stream().map(p -> tuple(p.getId(), p.getType(), p.getPhone())).collect(toList());
+  }
+
+  /**
+   * An immutable contact with the same getters as {@link Contact}, whose phones are packed into one byte array instead
+   * of a list of {@link Phone} objects, each with a string of its own.
+   *
+   * <p>Each phone takes its id as four bytes, its type as the ordinal in one byte (-1 for null), and its number as the
+   * length in two bytes (-1 for null) followed by its UTF-8 bytes; eighteen bytes for a US number, where a
+   * {@code Phone} and its string take about ninety. {@link #getPhones()} decodes them as they are read, so it suits
+   * the handful of phones a contact has, not thousands.
+   */
+  public static class CompactContact {
+    private static final byte[] NO_PHONES = new byte[0];
+    private static final PhoneType[] PHONE_TYPES = PhoneType.values();
+
+    private final int id;
+    private final String name;
+    private final byte[] phones;
+
+    CompactContact(int id, String name, byte[] phones) {
+      this.id = id;
+      this.name = name;
+      this.phones = phones.length == 0 ? NO_PHONES : phones;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * The contact's phones, decoded afresh on every {@code get}.
+     */
+    public List<Phone> getPhones() {
+      return new AbstractList<Phone>() {
+        @Override
+        public Phone get(int index) {
+          int offset = 0;
+          for (int i = 0; i < index && offset < phones.length; i++) {
+            offset = next(offset);
+          }
+          if (index < 0 || offset >= phones.length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+          }
+          return decode(offset);
+        }
+
+        @Override
+        public int size() {
+          int size = 0;
+          for (int offset = 0; offset < phones.length; offset = next(offset)) {
+            size++;
+          }
+          return size;
+        }
+      };
+    }
+
+    private int next(int offset) {
+      int length = readShort(phones, offset + 5);
+      return offset + 7 + Math.max(length, 0);
+    }
+
+    private Phone decode(int offset) {
+      int phoneId = readInt(phones, offset);
+      byte type = phones[offset + 4];
+      int length = readShort(phones, offset + 5);
+      String phone = length < 0 ? null : new String(phones, offset + 7, length, UTF_8);
+      return new Phone(phoneId, type < 0 ? null : PHONE_TYPES[type], phone);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+      return (bytes[offset] & 0xff) << 24
+          | (bytes[offset + 1] & 0xff) << 16
+          | (bytes[offset + 2] & 0xff) << 8
+          | bytes[offset + 3] & 0xff;
+    }
+
+    private static int readShort(byte[] bytes, int offset) {
+      return (short) ((bytes[offset] & 0xff) << 8 | bytes[offset + 1] & 0xff);
+    }
+  }
+
+  /**
+   * Builds {@link CompactContact}s from the rows of a join, in which the rows of each contact must be adjacent. A
+   * contact is packed into an array of exactly the right size as soon as the next one begins, so only one contact at a
+   * time is held in the assembler's scratch buffer, which is reused.
+   */
+  public static class CompactContactAssembler {
+    private final List<CompactContact> contacts = new ArrayList<>();
+    private byte[] scratch = new byte[256];
+    private int length;
+    private boolean started;
+    private int id;
+    private String name;
+
+    /**
+     * Adds one row of the join: a contact, and one of its phones or null.
+     */
+    public void add(int contactId, String contactName, Phone phone) {
+      if (!started || contactId != id) {
+        finishContact();
+        started = true;
+        id = contactId;
+        name = contactName;
+      }
+      if (phone != null) {
+        append(phone);
+      }
+    }
+
+    /**
+     * Returns the contacts, including the last one.
+     */
+    public List<CompactContact> finish() {
+      finishContact();
+      started = false;
+      return contacts;
+    }
+
+    private void finishContact() {
+      if (started) {
+        contacts.add(new CompactContact(id, name, Arrays.copyOf(scratch, length)));
+        length = 0;
+      }
+    }
+
+    private void append(Phone phone) {
+      byte[] number = phone.getPhone() == null ? null : phone.getPhone().getBytes(UTF_8);
+      if (number != null && number.length > Short.MAX_VALUE) {
+        throw new IllegalArgumentException("Phone number too long: " + phone.getPhone());
+      }
+      int size = 7 + (number == null ? 0 : number.length);
+      if (length + size > scratch.length) {
+        scratch = Arrays.copyOf(scratch, Math.max(scratch.length * 2, length + size));
+      }
+
+      int id = phone.getId();
+      scratch[length] = (byte) (id >>> 24);
+      scratch[length + 1] = (byte) (id >>> 16);
+      scratch[length + 2] = (byte) (id >>> 8);
+      scratch[length + 3] = (byte) id;
+      scratch[length + 4] = (byte) (phone.getType() == null ? -1 : phone.getType().ordinal());
+      int numberLength = number == null ? -1 : number.length;
+      scratch[length + 5] = (byte) (numberLength >>> 8);
+      scratch[length + 6] = (byte) numberLength;
+      if (number != null) {
+        System.arraycopy(number, 0, scratch, length + 7, number.length);
+      }
+      length += size;
+    }
+  }
+}
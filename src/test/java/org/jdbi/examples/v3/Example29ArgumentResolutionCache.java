@@ -0,0 +1,315 @@
+package org.jdbi.examples.v3;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.joda.money.CurrencyUnit.USD;
+
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.sql.Types;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Month;
+import java.time.MonthDay;
+import java.time.Period;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import org.jdbi.examples.rule.Allocations;
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.rule.Timings;
+import org.jdbi.examples.v3.Example05SqlObjectApi.Account;
+import org.jdbi.examples.v3.Example05SqlObjectApi.MoneyArgumentFactory;
+import org.jdbi.examples.v3.Example05SqlObjectApi.MoneyMapper;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.argument.Argument;
+import org.jdbi.v3.core.argument.ArgumentFactory;
+import org.jdbi.v3.core.config.ConfigRegistry;
+import org.jdbi.v3.core.config.JdbiConfig;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.jdbi.v3.sqlobject.config.RegisterBeanMapper;
+import org.jdbi.v3.sqlobject.config.RegisterColumnMapper;
+import org.jdbi.v3.sqlobject.customizer.BindBean;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import org.joda.money.Money;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example29ArgumentResolutionCache {
+  private static final int BATCH_SIZE = 500;
+
+  /**
+   * Value types a typical application binds somewhere, each with a factory of its own. Only their number matters here:
+   * without the cache, every argument of every statement is offered to each factory in turn.
+   */
+  private static final List<Class<?>> OTHER_BOUND_TYPES = Arrays.asList(
+      Locale.class, Currency.class, ZoneId.class, Duration.class, Period.class, Year.class, YearMonth.class,
+      MonthDay.class, DayOfWeek.class, Month.class, URI.class, Pattern.class);
+
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  /**
+   * {@code AccountDao} without its own {@code @RegisterArgumentFactory}, so that money is bound by whichever factories
+   * the Jdbi is configured with.
+   */
+  @RegisterBeanMapper(Account.class)
+  @RegisterColumnMapper(MoneyMapper.class)
+  public interface BatchAccountDao {
+    @SqlUpdate("create table accounts (id int primary key, name varchar(100), balance decimal)")
+    void createTable();
+
+    @SqlBatch("insert into accounts (id, name, balance) values (:id, :name, :balance)")
+    void insertAll(@BindBean List<Account> accounts);
+
+    @SqlBatch("update accounts set name = :name, balance = :balance where id = :id")
+    void updateAll(@BindBean List<Account> accounts);
+
+    @SqlQuery("select * from accounts order by id")
+    List<Account> list();
+  }
+
+  @Test
+  public void test() throws Exception {
+    Jdbi uncached = Jdbi.create(ds.getDataSource());
+    uncached.installPlugin(new SqlObjectPlugin());
+    OTHER_BOUND_TYPES.forEach(type -> uncached.registerArgument(new ToStringArgumentFactory(type)));
+    uncached.registerArgument(new MoneyArgumentFactory());
+
+    Jdbi cached = Jdbi.create(ds.getDataSource());
+    cached.installPlugin(new SqlObjectPlugin());
+    cached.registerArgument(new CachedArgumentFactory());
+    ArgumentResolution resolution = cached.getConfig(ArgumentResolution.class);
+    OTHER_BOUND_TYPES.forEach(type -> resolution.register(new ToStringArgumentFactory(type)));
+
+    BatchAccountDao uncachedDao = uncached.onDemand(BatchAccountDao.class);
+    BatchAccountDao cachedDao = cached.onDemand(BatchAccountDao.class);
+    uncachedDao.createTable();
+
+    // Until a factory for money is registered, money can't be bound; registering one invalidates the cache.
+    List<Account> accounts = accounts("Account", 1);
+    assertThat(catchInsert(cachedDao, accounts)).isNotNull();
+    resolution.register(new MoneyArgumentFactory());
+    resolution.resetCounts();
+    cachedDao.insertAll(accounts);
+    assertThat(cachedDao.list()).extracting(Account::getName).containsExactly("Account 0");
+
+    // Each (declared type, value class) pair is resolved once: here int, String and Money, for any number of rows.
+    cachedDao.updateAll(accounts("Renamed", 2));
+    cachedDao.updateAll(accounts("Renamed again", 2));
+    assertThat(resolution.getMisses()).isEqualTo(3);
+    assertThat(resolution.getHits()).isEqualTo(12);
+    assertThat(cachedDao.list()).extracting(Account::getName).containsExactly("Renamed again 0");
+
+    // Factories registered on the Jdbi afterwards still come first, without any invalidation.
+    cached.registerArgument((type, value, config) -> value instanceof Money
+        ? Optional.of((position, statement, ctx) -> statement.setBigDecimal(position, BigDecimal.ZERO))
+        : Optional.empty());
+    cachedDao.updateAll(accounts("Free", 1));
+    assertThat(cachedDao.list()).extracting(Account::getBalance).containsExactly(Money.zero(USD));
+
+    Jdbi fresh = Jdbi.create(ds.getDataSource());
+    fresh.installPlugin(new SqlObjectPlugin());
+    fresh.registerArgument(new CachedArgumentFactory());
+    fresh.getConfig(ArgumentResolution.class).register(new MoneyArgumentFactory());
+    OTHER_BOUND_TYPES.forEach(type -> fresh.getConfig(ArgumentResolution.class).register(
+        new ToStringArgumentFactory(type)));
+    BatchAccountDao freshDao = fresh.onDemand(BatchAccountDao.class);
+
+    // Bind-time savings on update batches.
+    List<Account> batch = accounts("Batch", BATCH_SIZE);
+    freshDao.insertAll(batch.subList(1, BATCH_SIZE));
+    long uncachedBytes = Allocations.bytesPerOperation(BATCH_SIZE, () -> uncachedDao.updateAll(batch));
+    long cachedBytes = Allocations.bytesPerOperation(BATCH_SIZE, () -> freshDao.updateAll(batch));
+    long[] nanos = Timings.nanosPerOperation(1, () -> uncachedDao.updateAll(batch), () -> freshDao.updateAll(batch));
+    String summary = String.format("Per row: %d bytes and %dns uncached, %d bytes and %dns cached",
+                                   uncachedBytes, nanos[0] / BATCH_SIZE, cachedBytes, nanos[1] / BATCH_SIZE);
+
+    assertThat(cachedBytes).as(summary).isLessThan(uncachedBytes);
+    if (Timings.isAsserted()) {
+      assertThat(nanos[1]).as(summary).isLessThan(nanos[0]);
+    }
+  }
+
+  private static Throwable catchInsert(BatchAccountDao dao, List<Account> accounts) {
+    try {
+      dao.insertAll(accounts);
+      return null;
+    }
+    catch (RuntimeException e) {
+      return e;
+    }
+  }
+
+  private static List<Account> accounts(String name, int count) {
+    return IntStream.range(0, count)
+        .mapToObj(id -> new Account(id, name + " " + id, Money.ofMinor(USD, 100 + id)))
+        .collect(toList());
+  }
+
+  /**
+   * Binds values of one type as their {@code toString()}.
+   */
+  public static class ToStringArgumentFactory implements ArgumentFactory {
+    private final Class<?> type;
+
+    public ToStringArgumentFactory(Class<?> type) {
+      this.type = type;
+    }
+
+    @Override
+    public Optional<Argument> build(Type type, Object value, ConfigRegistry config) {
+      if (type != this.type && !this.type.isInstance(value)) {
+        return Optional.empty();
+      }
+      String string = value == null ? null : value.toString();
+      return Optional.of((position, statement, ctx) -> statement.setObject(position, string, Types.VARCHAR));
+    }
+  }
+
+  /**
+   * Argument factories, and which of them binds each declared type and class of value, for the
+   * {@link CachedArgumentFactory}. Register factories here rather than on the Jdbi to have their resolution cached.
+   *
+   * <p>Once a factory has built an argument for a declared type and value class, later values of the same pair go
+   * straight to that factory; pairs none of the factories take go straight on to Jdbi's built-in factories. This
+   * assumes, as {@code AbstractArgumentFactory} and the built-in factories do, that whether a factory takes a value
+   * depends on its declared type and class only, or on whether it is null, never on the value itself.
+   *
+   * <p>Copies, such as the one every handle gets, share the factories and the cache of the configuration they were
+   * copied from until a factory is registered on them; registering starts a new cache.
+   */
+  public static class ArgumentResolution implements JdbiConfig<ArgumentResolution> {
+    private static final ArgumentFactory NONE = (type, value, config) -> Optional.empty();
+
+    private List<ArgumentFactory> factories;
+    private ConcurrentMap<Key, ArgumentFactory> resolved;
+    private AtomicLong hits;
+    private AtomicLong misses;
+
+    public ArgumentResolution() {
+      this.factories = Collections.emptyList();
+      this.resolved = new ConcurrentHashMap<>();
+      this.hits = new AtomicLong();
+      this.misses = new AtomicLong();
+    }
+
+    private ArgumentResolution(ArgumentResolution that) {
+      this.factories = that.factories;
+      this.resolved = that.resolved;
+      this.hits = that.hits;
+      this.misses = that.misses;
+    }
+
+    /**
+     * Registers a factory, to be tried before those registered earlier.
+     */
+    public ArgumentResolution register(ArgumentFactory factory) {
+      List<ArgumentFactory> updated = new ArrayList<>(factories.size() + 1);
+      updated.add(factory);
+      updated.addAll(factories);
+      factories = Collections.unmodifiableList(updated);
+      resolved = new ConcurrentHashMap<>();
+      return this;
+    }
+
+    Optional<Argument> build(Type type, Object value, ConfigRegistry config) {
+      Key key = new Key(type, value);
+      ArgumentFactory factory = resolved.get(key);
+      if (factory != null) {
+        hits.incrementAndGet();
+        return factory.build(type, value, config);
+      }
+
+      misses.incrementAndGet();
+      for (ArgumentFactory candidate : factories) {
+        Optional<Argument> argument = candidate.build(type, value, config);
+        if (argument.isPresent()) {
+          resolved.put(key, candidate);
+          return argument;
+        }
+      }
+      resolved.put(key, NONE);
+      return Optional.empty();
+    }
+
+    /**
+     * How many arguments went straight to the factory resolved for them before.
+     */
+    public long getHits() {
+      return hits.get();
+    }
+
+    /**
+     * How many arguments were offered to the factories in turn.
+     */
+    public long getMisses() {
+      return misses.get();
+    }
+
+    public void resetCounts() {
+      hits.set(0);
+      misses.set(0);
+    }
+
+    @Override
+    public ArgumentResolution createCopy() {
+      return new ArgumentResolution(this);
+    }
+
+    private static class Key {
+      private final Type type;
+      private final Class<?> valueClass;
+
+      Key(Type type, Object value) {
+        this.type = type;
+        this.valueClass = value == null ? null : value.getClass();
+      }
+
+      @Override
+      public boolean equals(Object o) {
+        if (this == o) {
+          return true;
+        }
+        if (!(o instanceof Key)) {
+          return false;
+        }
+        Key that = (Key) o;
+        return Objects.equals(type, that.type) && valueClass == that.valueClass;
+      }
+
+      @Override
+      public int hashCode() {
+        return 31 * Objects.hashCode(type) + Objects.hashCode(valueClass);
+      }
+    }
+  }
+
+  /**
+   * Resolves arguments through the {@link ArgumentResolution} of the statement's configuration. Register it on a Jdbi
+   * before any factory that should be tried after the cached ones, such as Jdbi's own.
+   */
+  public static class CachedArgumentFactory implements ArgumentFactory {
+    @Override
+    public Optional<Argument> build(Type type, Object value, ConfigRegistry config) {
+      return config.get(ArgumentResolution.class).build(type, value, config);
+    }
+  }
+}
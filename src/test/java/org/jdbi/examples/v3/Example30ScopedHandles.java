@@ -0,0 +1,331 @@
+package org.jdbi.examples.v3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.WORK;
+import static org.joda.money.CurrencyUnit.USD;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.rule.InstrumentedDataSource;
+import org.jdbi.examples.rule.Timings;
+import org.jdbi.examples.v3.Example05SqlObjectApi.Account;
+import org.jdbi.examples.v3.Example05SqlObjectApi.AccountDao;
+import org.jdbi.examples.v3.Example06Joins.Contact;
+import org.jdbi.examples.v3.Example06Joins.ContactDao;
+import org.jdbi.examples.v3.Example06Joins.Phone;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.joda.money.Money;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example30ScopedHandles {
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  @Test
+  public void test() throws Exception {
+    InstrumentedDataSource metered = new InstrumentedDataSource(ds.getDataSource(), Duration.ofSeconds(10));
+    Jdbi jdbi = Jdbi.create(metered);
+    jdbi.installPlugin(new SqlObjectPlugin());
+
+    // Long-lived DAOs, created once and shared by every request.
+    HandleScopes scopes = new HandleScopes(jdbi);
+    ContactDao contacts = scopes.onDemand(ContactDao.class);
+    AccountDao accounts = scopes.onDemand(AccountDao.class);
+
+    // Outside a scope, each call checks out a connection of its own, like jdbi.onDemand.
+    long before = metered.getAcquisitions();
+    contacts.createContactTable();
+    contacts.createPhoneTable();
+    accounts.createTable();
+    contacts.insertFullContact(Contact.create(1, "Alice", new Phone(2, WORK, "800-555-1234")));
+    accounts.insert(new Account(1, "Alice", Money.of(USD, 10)));
+    assertThat(metered.getAcquisitions() - before).isEqualTo(5);
+
+    // Within a scope, all DAOs share one handle, checked out on first use and given back when the scope closes.
+    before = metered.getAcquisitions();
+    try (HandleScope scope = scopes.open()) {
+      assertThat(metered.getAcquisitions() - before).isZero();
+      handleRequest(contacts, accounts);
+      handleRequest(contacts, accounts);
+
+      // Nested scopes join the one already open on the thread.
+      try (HandleScope nested = scopes.open()) {
+        assertThat(nested.getHandle()).isSameAs(scope.getHandle());
+        handleRequest(contacts, accounts);
+      }
+      assertThat(metered.getActive()).isEqualTo(1);
+
+      // Other threads are not part of the scope.
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+        assertThat(executor.submit(() -> accounts.getById(1).getName()).get()).isEqualTo("Alice");
+      }
+      finally {
+        executor.shutdown();
+      }
+      assertThat(metered.getAcquisitions() - before).isEqualTo(2);
+    }
+    assertThat(metered.getActive()).isZero();
+
+    // So do their transactions: rolling back the scope's handle undoes what every DAO did in it.
+    try (HandleScope scope = scopes.open()) {
+      Handle h = scope.getHandle();
+      h.begin();
+      accounts.update(new Account(1, "Mallory", Money.of(USD, 0)));
+      contacts.insertFullContact(Contact.create(3, "Mallory"));
+      h.rollback();
+    }
+    assertThat(accounts.getById(1).getName()).isEqualTo("Alice");
+    assertThat(contacts.listFullContacts()).extracting(Contact::getName).containsExactly("Alice");
+
+    // Closing a scope again does nothing, even once another scope has been opened on the thread.
+    HandleScope first = scopes.open();
+    first.getHandle();
+    first.close();
+    try (HandleScope second = scopes.open()) {
+      Handle h = second.getHandle();
+      first.close();
+      assertThat(h.getConnection().isClosed()).isFalse();
+      try (HandleScope nested = scopes.open()) {
+        assertThat(nested.getHandle()).isSameAs(h);
+      }
+    }
+    assertThat(metered.getActive()).isZero();
+    assertThatThrownBy(first::getHandle).isInstanceOf(IllegalStateException.class);
+
+    // Closing a nested scope twice leaves the outer one and its handle open.
+    try (HandleScope outer = scopes.open()) {
+      Handle h = outer.getHandle();
+      HandleScope nested = scopes.open();
+      nested.close();
+      nested.close();
+      assertThat(h.getConnection().isClosed()).isFalse();
+      assertThat(outer.getHandle()).isSameAs(h);
+      handleRequest(contacts, accounts);
+      assertThat(metered.getActive()).isEqualTo(1);
+    }
+    assertThat(metered.getActive()).isZero();
+
+    // A scope belongs to the thread that opened it.
+    HandleScope scope = scopes.open();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      assertThatThrownBy(() -> executor.submit(scope::close).get()).hasCauseInstanceOf(IllegalStateException.class);
+    }
+    finally {
+      executor.shutdown();
+      scope.close();
+    }
+
+    // Benchmark a request of three DAO calls both ways.
+    long perCallCheckouts = checkoutsPerRequest(metered, () -> handleRequest(contacts, accounts));
+    long scopedCheckouts = checkoutsPerRequest(metered, () -> {
+      try (HandleScope requestScope = scopes.open()) {
+        handleRequest(contacts, accounts);
+      }
+    });
+    assertThat(perCallCheckouts).isEqualTo(3);
+    assertThat(scopedCheckouts).isEqualTo(1);
+
+    long[] nanos = Timings.nanosPerOperation(
+        100,
+        () -> handleRequest(contacts, accounts),
+        () -> {
+          try (HandleScope requestScope = scopes.open()) {
+            handleRequest(contacts, accounts);
+          }
+        });
+    if (Timings.isAsserted()) {
+      assertThat(nanos[1])
+          .as("Nanoseconds per request: %d per call, %d scoped", nanos[0], nanos[1])
+          .isLessThan(nanos[0]);
+    }
+  }
+
+  /**
+   * What a request handler in an application might do: read a contact and an account, and update the account.
+   */
+  private static void handleRequest(ContactDao contacts, AccountDao accounts) {
+    Contact contact = contacts.getFullContactById(1);
+    Account account = accounts.getById(1);
+    accounts.update(new Account(account.getId(), contact.getName(), account.getBalance()));
+  }
+
+  private static long checkoutsPerRequest(InstrumentedDataSource metered, Runnable request) {
+    long before = metered.getAcquisitions();
+    request.run();
+    return metered.getAcquisitions() - before;
+  }
+
+  /**
+   * Hands out SqlObjects that share a handle with every other SqlObject called within the same {@link HandleScope}.
+   *
+   * <p>SqlObjects from {@link #onDemand} are meant to be created once and kept. When called on a thread with an open
+   * scope, they run on the scope's handle, and so on its connection and in its transaction, if one was begun.
+   * Otherwise they open and close a handle for each call, like the SqlObjects of {@link Jdbi#onDemand}.
+   */
+  public static class HandleScopes {
+    private final Jdbi jdbi;
+    private final ThreadLocal<SharedHandle> current = new ThreadLocal<>();
+
+    public HandleScopes(Jdbi jdbi) {
+      this.jdbi = jdbi;
+    }
+
+    /**
+     * Opens a scope on the current thread, or a nested one sharing the handle of the scope already open on it. Every
+     * scope opened must be closed, on the same thread; the handle is closed along with the last of them.
+     */
+    public HandleScope open() {
+      SharedHandle shared = current.get();
+      if (shared == null) {
+        shared = new SharedHandle(this);
+        current.set(shared);
+      }
+      shared.depth++;
+      return new HandleScope(shared);
+    }
+
+    public <T> T onDemand(Class<T> sqlObjectType) {
+      return sqlObjectType.cast(Proxy.newProxyInstance(
+          sqlObjectType.getClassLoader(),
+          new Class<?>[] {sqlObjectType},
+          (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+              return invokeObjectMethod(proxy, sqlObjectType, method, args);
+            }
+            SharedHandle shared = current.get();
+            if (shared != null) {
+              return invoke(method, shared.attach(sqlObjectType), args);
+            }
+            return jdbi.withHandle(h -> invoke(method, h.attach(sqlObjectType), args));
+          }));
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Exception {
+      try {
+        return method.invoke(target, args);
+      }
+      catch (InvocationTargetException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Exception) {
+          throw (Exception) cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw e;
+      }
+    }
+
+    private static Object invokeObjectMethod(Object proxy, Class<?> sqlObjectType, Method method, Object[] args) {
+      switch (method.getName()) {
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "Scoped " + sqlObjectType.getName();
+        default:
+          throw new UnsupportedOperationException(method.toString());
+      }
+    }
+  }
+
+  /**
+   * A scope opened by {@link HandleScopes#open()}. Scopes open on the same thread share one handle, used by the
+   * SqlObjects of the {@link HandleScopes} on that thread and opened when one of them is first called. Transactions
+   * begun on {@link #getHandle()} take in every SqlObject called until they end.
+   */
+  public static class HandleScope implements AutoCloseable {
+    private final SharedHandle shared;
+    private boolean closed;
+
+    HandleScope(SharedHandle shared) {
+      this.shared = shared;
+    }
+
+    /**
+     * The shared handle, opened now if no SqlObject has needed it yet.
+     */
+    public Handle getHandle() {
+      shared.checkOwner();
+      if (closed) {
+        throw new IllegalStateException("Scope is closed");
+      }
+      return shared.getHandle();
+    }
+
+    /**
+     * Leaves the scope, closing the shared handle if no other scope on the thread is still open. Closing a scope
+     * again does nothing.
+     */
+    @Override
+    public void close() {
+      shared.checkOwner();
+      if (closed) {
+        return;
+      }
+      closed = true;
+      shared.release();
+    }
+  }
+
+  /**
+   * The handle shared by the open scopes of a thread, and the SqlObjects attached to it. Counts the scopes still open,
+   * and closes the handle when the last one closes.
+   */
+  private static class SharedHandle {
+    private final HandleScopes scopes;
+    private final Thread owner = Thread.currentThread();
+    private final Map<Class<?>, Object> attached = new HashMap<>();
+    private Handle handle;
+    private int depth;
+
+    SharedHandle(HandleScopes scopes) {
+      this.scopes = scopes;
+    }
+
+    Handle getHandle() {
+      if (handle == null) {
+        handle = scopes.jdbi.open();
+      }
+      return handle;
+    }
+
+    <T> T attach(Class<T> sqlObjectType) {
+      return sqlObjectType.cast(attached.computeIfAbsent(sqlObjectType, type -> getHandle().attach(type)));
+    }
+
+    void release() {
+      if (--depth > 0) {
+        return;
+      }
+      scopes.current.remove();
+      attached.clear();
+      if (handle != null) {
+        Handle h = handle;
+        handle = null;
+        h.close();
+      }
+    }
+
+    void checkOwner() {
+      if (Thread.currentThread() != owner) {
+        throw new IllegalStateException("Scope belongs to " + owner.getName());
+      }
+    }
+  }
+}
@@ -0,0 +1,282 @@
+package org.jdbi.examples.v3;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.HOME;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.MOBILE;
+import static org.jdbi.examples.v3.Example06Joins.PhoneType.WORK;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.assertj.core.groups.Tuple;
+import org.jdbi.examples.rule.DataSourceRule;
+import org.jdbi.examples.rule.Timings;
+import org.jdbi.examples.v3.Example06Joins.Contact;
+import org.jdbi.examples.v3.Example06Joins.ContactDao;
+import org.jdbi.examples.v3.Example06Joins.Phone;
+import org.jdbi.examples.v3.Example06Joins.PhoneType;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.PreparedBatch;
+import org.jdbi.v3.core.statement.Query;
+import org.jdbi.v3.core.statement.StatementContext;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class Example31AggregatedJoins {
+  private static final int CONTACTS = 5_000;
+
+  /**
+   * The query of {@link ContactDao#listFullContacts()}: one row per phone, each repeating its contact's columns.
+   */
+  private static final String JOINED_SQL = "select c.id c_id, c.name c_name, "
+      + "p.id p_id, p.type p_type, p.phone p_phone "
+      + "from contacts c left join phones p on c.id = p.contactId "
+      + "order by c.name";
+
+  /**
+   * One row per contact, its phones concatenated by the database into a single column in the format read by
+   * {@link PhoneListParser}. Define {@code where} as a where clause, or as an empty string for every contact.
+   */
+  private static final String AGGREGATED_SQL = "select c.id, c.name, "
+      + "group_concat(p.id || ',' || coalesce(p.type, '') || ',' "
+      + "|| coalesce(cast(length(p.phone) as varchar), '') || ':' || coalesce(p.phone, '') "
+      + "order by p.id separator '') phones "
+      + "from contacts c left join phones p on c.id = p.contactId "
+      + "<where> "
+      + "group by c.id, c.name "
+      + "order by c.name";
+
+  @Rule
+  public DataSourceRule ds = new DataSourceRule();
+
+  public interface AggregatedContactDao extends ContactDao {
+    /**
+     * Like {@link ContactDao#getFullContactById(int)}, but reads a single row.
+     */
+    default Contact getAggregatedContactById(int id) {
+      return getHandle().createQuery(AGGREGATED_SQL)
+          .define("where", "where c.id = :id")
+          .bind("id", id)
+          .map(new AggregatedContactMapper())
+          .findFirst()
+          .orElse(null);
+    }
+
+    /**
+     * Like {@link ContactDao#listFullContacts()}, but reads a single row per contact.
+     */
+    default List<Contact> listAggregatedContacts() {
+      return getHandle().createQuery(AGGREGATED_SQL)
+          .define("where", "")
+          .map(new AggregatedContactMapper())
+          .list();
+    }
+  }
+
+  @Test
+  public void test() throws Exception {
+    Jdbi jdbi = Jdbi.create(ds.getDataSource());
+    jdbi.installPlugin(new SqlObjectPlugin());
+
+    AggregatedContactDao dao = jdbi.onDemand(AggregatedContactDao.class);
+    dao.createContactTable();
+    dao.createPhoneTable();
+
+    // Phones whose fields are missing, or contain the characters the format is made of, come back intact.
+    dao.insertFullContact(Contact.create(
+        1, "Alice", new Phone(10, WORK, "800-555-1234"), new Phone(11, null, "1,2:3"), new Phone(12, HOME, null),
+        new Phone(13, MOBILE, "")));
+    dao.insertFullContact(Contact.create(2, "Bob"));
+    assertThat(phoneTuples(dao.getAggregatedContactById(1)))
+        .isEqualTo(phoneTuples(dao.getFullContactById(1)))
+        .containsExactly(tuple(10, WORK, "800-555-1234"), tuple(11, null, "1,2:3"), tuple(12, HOME, null),
+                         tuple(13, MOBILE, ""));
+    assertThat(dao.getAggregatedContactById(2).getPhones()).isEmpty();
+    assertThat(dao.getAggregatedContactById(3)).isNull();
+
+    assertThatThrownBy(() -> PhoneListParser.parse("10,WORK,12:800-555", new Contact(1, "Alice")))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> PhoneListParser.parse("10,FAX,0:", new Contact(1, "Alice")))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> PhoneListParser.parse("2147483648,WORK,0:", new Contact(1, "Alice")))
+        .isInstanceOf(IllegalArgumentException.class);
+    PhoneListParser.parse("2147483647,WORK,0:", new Contact(1, "Alice"));
+
+    jdbi.useHandle(h -> {
+      h.execute("delete from contacts");
+      PreparedBatch contacts = h.prepareBatch("insert into contacts (id, name) values (:id, :name)");
+      PreparedBatch phones = h.prepareBatch("insert into phones (id, contactId, type, phone) "
+                                                + "values (:id, :contactId, :type, :phone)");
+      for (int id = 1; id <= CONTACTS; id++) {
+        contacts.bind("id", id).bind("name", String.format("Contact %05d", id)).add();
+        int phoneId = id * 3;
+        phones.bind("id", phoneId).bind("contactId", id).bind("type", WORK).bind("phone", "800-555-" + id).add();
+        phones.bind("id", phoneId + 1).bind("contactId", id).bind("type", MOBILE).bind("phone", "801-555-" + id).add();
+        phones.bind("id", phoneId + 2).bind("contactId", id).bind("type", HOME).bind("phone", "802-555-" + id).add();
+      }
+      contacts.execute();
+      phones.execute();
+    });
+
+    List<Contact> joined = dao.listFullContacts();
+    List<Contact> aggregated = dao.listAggregatedContacts();
+    assertThat(aggregated.stream().map(Example31AggregatedJoins::contactTuple).collect(toList()))
+        .isEqualTo(joined.stream().map(Example31AggregatedJoins::contactTuple).collect(toList()));
+
+    // What each query sends back: rows, and characters over all of their columns.
+    long[] joinedVolume = jdbi.withHandle(h -> resultVolume(h.createQuery(JOINED_SQL)));
+    long[] aggregatedVolume = jdbi.withHandle(h -> resultVolume(h.createQuery(AGGREGATED_SQL).define("where", "")));
+    long[] nanos = Timings.nanosPerOperation(1, dao::listFullContacts, dao::listAggregatedContacts);
+    String summary = String.format("Join and reduce: %d rows, %d chars, %dus; aggregated: %d rows, %d chars, %dus",
+                                   joinedVolume[0], joinedVolume[1], nanos[0] / 1000,
+                                   aggregatedVolume[0], aggregatedVolume[1], nanos[1] / 1000);
+
+    assertThat(joinedVolume[0]).as(summary).isEqualTo(3 * CONTACTS);
+    assertThat(aggregatedVolume[0]).as(summary).isEqualTo(CONTACTS);
+    assertThat(aggregatedVolume[1]).as(summary).isLessThan(joinedVolume[1]);
+    if (Timings.isAsserted()) {
+      assertThat(nanos[1]).as(summary).isLessThan(nanos[0]);
+    }
+  }
+
+  private static long[] resultVolume(Query query) {
+    return query.reduceResultSet(new long[2], (volume, rs, ctx) -> {
+      volume[0]++;
+      for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++) {
+        String value = rs.getString(i);
+        volume[1] += value == null ? 0 : value.length();
+      }
+      return volume;
+    });
+  }
+
+  private static Tuple contactTuple(Contact contact) {
+    return tuple(contact.getId(), contact.getName(), phoneTuples(contact));
+  }
+
+  private static List<Tuple> phoneTuples(Contact contact) {
+    return contact.getPhones().stream().map(p -> tuple(p.getId(), p.getType(), p.getPhone())).collect(toList());
+  }
+
+  /**
+   * Maps the rows of {@link #AGGREGATED_SQL}.
+   */
+  public static class AggregatedContactMapper implements RowMapper<Contact> {
+    @Override
+    public Contact map(ResultSet rs, StatementContext ctx) throws SQLException {
+      Contact contact = new Contact(rs.getInt("id"), rs.getString("name"));
+      String phones = rs.getString("phones");
+      if (phones != null) {
+        PhoneListParser.parse(phones, contact);
+      }
+      return contact;
+    }
+  }
+
+  /**
+   * Decodes the phones of a contact from a single string, straight into {@link Phone}s.
+   *
+   * <p>Each phone is written as its id, a comma, its type's name, a comma, the length of its number, a colon, and the
+   * number itself; an empty type or length stands for null. As numbers are read by length, they may contain any
+   * characters, separators included. Ids and lengths are parsed in place, and types matched against the constants'
+   * names, so that the only strings created are the numbers.
+   */
+  public static class PhoneListParser {
+    private static final PhoneType[] PHONE_TYPES = PhoneType.values();
+
+    private final String encoded;
+    private int offset;
+
+    private PhoneListParser(String encoded) {
+      this.encoded = encoded;
+    }
+
+    /**
+     * Adds the phones encoded in the given string to the contact.
+     *
+     * @throws IllegalArgumentException if the string is not in the format described above
+     */
+    public static void parse(String encoded, Contact contact) {
+      PhoneListParser parser = new PhoneListParser(encoded);
+      while (parser.offset < encoded.length()) {
+        contact.addPhone(parser.next());
+      }
+    }
+
+    private Phone next() {
+      int id = readInt(',');
+      if (id < 0) {
+        throw malformed("phone id");
+      }
+      PhoneType type = readType();
+      int length = readInt(':');
+      String phone = null;
+      if (length >= 0) {
+        if (offset + length > encoded.length()) {
+          throw malformed("phone number of length " + length);
+        }
+        phone = encoded.substring(offset, offset + length);
+        offset += length;
+      }
+      return new Phone(id, type, phone);
+    }
+
+    /**
+     * Reads digits up to the terminator, and skips it. Returns -1 if there are none.
+     */
+    private int readInt(char terminator) {
+      int start = offset;
+      int value = 0;
+      char c;
+      while (offset < encoded.length() && (c = encoded.charAt(offset)) != terminator) {
+        if (c < '0' || c > '9') {
+          throw malformed("digit");
+        }
+        int digit = c - '0';
+        if (value > (Integer.MAX_VALUE - digit) / 10) {
+          throw malformed("number that fits in an int");
+        }
+        value = value * 10 + digit;
+        offset++;
+      }
+      if (offset == encoded.length()) {
+        throw malformed("'" + terminator + "'");
+      }
+      offset++;
+      return offset - 1 == start ? -1 : value;
+    }
+
+    private PhoneType readType() {
+      int end = encoded.indexOf(',', offset);
+      if (end < 0) {
+        throw malformed("phone type");
+      }
+      int length = end - offset;
+      PhoneType type = null;
+      if (length > 0) {
+        for (PhoneType candidate : PHONE_TYPES) {
+          String name = candidate.name();
+          if (name.length() == length && encoded.regionMatches(offset, name, 0, length)) {
+            type = candidate;
+            break;
+          }
+        }
+        if (type == null) {
+          throw malformed("phone type");
+        }
+      }
+      offset = end + 1;
+      return type;
+    }
+
+    private IllegalArgumentException malformed(String expected) {
+      return new IllegalArgumentException("Expected " + expected + " at offset " + offset + " of '" + encoded + "'");
+    }
+  }
+}